@@ -0,0 +1,74 @@
+package advent2021.misc;
+
+import java.util.Arrays;
+
+public final class ByteTable extends Grid {
+
+    private byte[] values;
+
+    public ByteTable() {
+        this.values = new byte[16];
+    }
+
+    public ByteTable(int colCount, int rowCount) {
+        this.values = new byte[colCount * rowCount];
+        this.colCount = colCount;
+        this.rowCount = rowCount;
+    }
+
+    ByteTable(int colCount, int rowCount, byte[] values) {
+
+        if (values.length != colCount * rowCount) {
+            throw new IllegalArgumentException("Expected " + colCount * rowCount + " values but got " + values.length);
+        }
+        this.values = values;
+        this.colCount = colCount;
+        this.rowCount = rowCount;
+    }
+
+    public ByteTable(ByteTable table) {
+        this.values = Arrays.copyOf(table.values, table.colCount * table.rowCount);
+        this.colCount = table.colCount;
+        this.rowCount = table.rowCount;
+    }
+
+    public void addRow(byte[] values) {
+
+        checkNotFrozen();
+        checkRowWidth(values.length);
+
+        int offset = rowCount * values.length;
+        if (offset + values.length > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(offset + values.length, this.values.length * 2));
+        }
+        System.arraycopy(values, 0, this.values, offset, values.length);
+        rowCount++;
+        colCount = values.length;
+    }
+
+    public void setValueAt(Point point, byte value) {
+        setValueAt(point.x(), point.y(), value);
+    }
+
+    public void setValueAt(int col, int row, byte value) {
+        checkNotFrozen();
+        this.values[row * colCount + col] = value;
+    }
+
+    public byte getValueAt(Point point) {
+        return getValueAt(point.x(), point.y());
+    }
+
+    public byte getValueAt(int col, int row) {
+        return this.values[row * colCount + col];
+    }
+
+    public byte getValue(int index) {
+        return this.values[index];
+    }
+
+    public void setValue(int index, byte value) {
+        checkNotFrozen();
+        this.values[index] = value;
+    }
+}
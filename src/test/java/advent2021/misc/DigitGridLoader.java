@@ -0,0 +1,149 @@
+package advent2021.misc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class DigitGridLoader {
+
+   private static final int CHUNK_SIZE = 1 << 16;
+
+   private DigitGridLoader() {
+   }
+
+   public static ByteTable loadResource(String s) throws IOException {
+      return load(Utils.resourcePath(s));
+   }
+
+   public static ByteTable load(Path path) throws IOException {
+
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+         long size = channel.size();
+         if (size > Integer.MAX_VALUE) {
+            throw new IOException("Grid of " + size + " bytes is too large to be mapped at once: " + path);
+         }
+         return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+      }
+   }
+
+   public static ByteTable parse(ByteBuffer buffer) {
+
+      int start = buffer.position();
+      int end = buffer.limit();
+      while (end > start && isEndOfLine(buffer.get(end - 1))) {
+         end--;
+      }
+
+      if (end == start) {
+         return new ByteTable(0, 0);
+      }
+
+      int width = 0;
+      while (start + width < end && !isEndOfLine(buffer.get(start + width))) {
+         width++;
+      }
+
+      if (width == 0) {
+         throw new IllegalArgumentException("A digit grid cannot start with an empty row");
+      }
+
+      int lineLength = width + 1;
+      if (start + width + 1 < end && buffer.get(start + width) == '\r' && buffer.get(start + width + 1) == '\n') {
+         lineLength++;
+      }
+
+      boolean crlf = lineLength - width == 2;
+      int height = 0;
+      int position = start + width;
+      for (; position < end; position += lineLength) {
+         checkRowEnd(buffer, height++, width, position, crlf);
+      }
+      if (position != end) {
+         throw new IllegalArgumentException("Row " + height + " is not " + width + " digits wide");
+      }
+      height++;
+
+      byte[] values = new byte[Math.multiplyExact(width, height)];
+
+      int rowsPerChunk = Math.max(1, CHUNK_SIZE / lineLength);
+      ForkJoinPool.commonPool().invoke(new RowTask(buffer, start, lineLength, width, values, 0, height, rowsPerChunk));
+
+      return new ByteTable(width, height, values);
+   }
+
+   private static boolean isEndOfLine(byte b) {
+      return b == '\n' || b == '\r';
+   }
+
+   private static void checkRowEnd(ByteBuffer buffer, int row, int width, int position, boolean crlf) {
+
+      boolean terminated = crlf
+            ? buffer.get(position) == '\r' && buffer.get(position + 1) == '\n'
+            : buffer.get(position) == '\n';
+
+      if (!terminated) {
+         throw new IllegalArgumentException("Row " + row + " is not " + width + " digits wide");
+      }
+   }
+
+   private static class RowTask extends RecursiveAction {
+
+      private final ByteBuffer buffer;
+      private final int start;
+      private final int lineLength;
+      private final int width;
+      private final byte[] values;
+      private final int fromRow;
+      private final int toRow;
+      private final int rowsPerChunk;
+
+      RowTask(ByteBuffer buffer, int start, int lineLength, int width, byte[] values, int fromRow, int toRow, int rowsPerChunk) {
+         this.buffer = buffer;
+         this.start = start;
+         this.lineLength = lineLength;
+         this.width = width;
+         this.values = values;
+         this.fromRow = fromRow;
+         this.toRow = toRow;
+         this.rowsPerChunk = rowsPerChunk;
+      }
+
+      @Override
+      protected void compute() {
+
+         if (toRow - fromRow <= rowsPerChunk) {
+            readRows();
+            return;
+         }
+
+         int middle = (fromRow + toRow) >>> 1;
+         invokeAll(new RowTask(buffer, start, lineLength, width, values, fromRow, middle, rowsPerChunk),
+               new RowTask(buffer, start, lineLength, width, values, middle, toRow, rowsPerChunk));
+      }
+
+      private void readRows() {
+
+         for (int row = fromRow; row < toRow; row++) {
+
+            int offset = row * width;
+            int position = start + row * lineLength;
+            buffer.get(position, values, offset, width);
+
+            for (int col = 0; col < width; col++) {
+
+               int digit = values[offset + col] - '0';
+               if (digit < 0 || digit > 9) {
+                  throw new IllegalArgumentException("Expected a digit at row " + row + ", column " + col
+                        + " but got '" + (char) values[offset + col] + "'");
+               }
+               values[offset + col] = (byte) digit;
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,135 @@
+package advent2021.misc;
+
+import org.javatuples.Pair;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+public abstract class Grid {
+
+    private static final Collection<Pair<Integer, Integer>> ALL_MOVES =
+            Utils.crossProductBut(Arrays.asList(-1, 0, +1), Arrays.asList(-1, 0, +1), Pair.with(0,0));
+
+    private static final Collection<Pair<Integer, Integer>> ALL_BUT_DIAGONAL_MOVES =
+            Arrays.asList(Pair.with(0,  -1), Pair.with(0,  +1), Pair.with(-1, 0), Pair.with(+1,  0));
+
+    protected int rowCount;
+    protected int colCount;
+
+    private boolean frozen;
+
+    private NeighborIndex neighborIndex;
+    private NeighborIndex neighborIndexWithDiagonals;
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public int getCellCount() {
+        return rowCount * colCount;
+    }
+
+    public int indexOf(int col, int row) {
+        return row * colCount + col;
+    }
+
+    public int indexOf(Point point) {
+        return indexOf(point.x(), point.y());
+    }
+
+    public int colOf(int index) {
+        return index % colCount;
+    }
+
+    public int rowOf(int index) {
+        return index / colCount;
+    }
+
+    public List<Point> getPoints() {
+        return getPoints(null);
+    }
+
+    List<Point> getPoints(Predicate<Point> p) {
+
+        List<Point> result = new ArrayList<>();
+
+        for (int y = 0 ; y < rowCount ; y++) {
+            for (int x = 0; x < colCount; x++) {
+
+                Point point = new Point(x, y);
+                if (null == p || p.test(point)) {
+                    result.add(point);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public List<Point> findNeighbors(Point p, boolean withDiagonals, Predicate<Point> predicate) {
+
+        List<Point> result = new ArrayList<>();
+
+        for (Pair<Integer, Integer> move: withDiagonals ? ALL_MOVES : ALL_BUT_DIAGONAL_MOVES) {
+
+            int x = p.x() + move.getValue0();
+            int y = p.y() + move.getValue1();
+
+            if (y < 0 || y >= rowCount || x < 0 || x >= colCount) {
+                continue;
+            }
+
+            Point neighbor = new Point(x, y);
+            if (null == predicate || predicate.test(neighbor)) {
+                result.add(neighbor);
+            }
+        }
+        return result;
+    }
+
+    public NeighborIndex getNeighborIndex(boolean withDiagonals) {
+
+        if (withDiagonals) {
+            if (neighborIndexWithDiagonals == null || !neighborIndexWithDiagonals.matches(colCount, rowCount)) {
+                neighborIndexWithDiagonals = NeighborIndex.build(colCount, rowCount, true);
+            }
+            return neighborIndexWithDiagonals;
+        } else {
+            if (neighborIndex == null || !neighborIndex.matches(colCount, rowCount)) {
+                neighborIndex = NeighborIndex.build(colCount, rowCount, false);
+            }
+            return neighborIndex;
+        }
+    }
+
+    public void forEachNeighbor(int index, boolean withDiagonals, IntConsumer visitor) {
+        getNeighborIndex(withDiagonals).forEachNeighbor(index, visitor);
+    }
+
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    protected void checkNotFrozen() {
+
+        if (frozen) {
+            throw new IllegalStateException("Grid is frozen, copy it before modifying it");
+        }
+    }
+
+    protected void checkRowWidth(int width) {
+
+        if (rowCount > 0 && width != colCount) {
+            throw new IllegalArgumentException("Expected a row of " + colCount + " values but got " + width);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package advent2021.misc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("advent2021.InputLoad")
+@Label("Input Load")
+@Category({"Advent of Code", "Input"})
+public class InputLoadEvent extends Event {
+
+   @Label("Resource")
+   String resourceName;
+
+   @Label("Record Count")
+   long recordCount;
+}
@@ -0,0 +1,64 @@
+package advent2021.misc;
+
+import java.util.Arrays;
+
+public final class IntTable extends Grid {
+
+    private int[] values;
+
+    public IntTable() {
+        this.values = new int[16];
+    }
+
+    public IntTable(int colCount, int rowCount) {
+        this.values = new int[colCount * rowCount];
+        this.colCount = colCount;
+        this.rowCount = rowCount;
+    }
+
+    public IntTable(IntTable table) {
+        this.values = Arrays.copyOf(table.values, table.colCount * table.rowCount);
+        this.colCount = table.colCount;
+        this.rowCount = table.rowCount;
+    }
+
+    public void addRow(int[] values) {
+
+        checkNotFrozen();
+        checkRowWidth(values.length);
+
+        int offset = rowCount * values.length;
+        if (offset + values.length > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(offset + values.length, this.values.length * 2));
+        }
+        System.arraycopy(values, 0, this.values, offset, values.length);
+        rowCount++;
+        colCount = values.length;
+    }
+
+    public void setValueAt(Point point, int value) {
+        setValueAt(point.x(), point.y(), value);
+    }
+
+    public void setValueAt(int col, int row, int value) {
+        checkNotFrozen();
+        this.values[row * colCount + col] = value;
+    }
+
+    public int getValueAt(Point point) {
+        return getValueAt(point.x(), point.y());
+    }
+
+    public int getValueAt(int col, int row) {
+        return this.values[row * colCount + col];
+    }
+
+    public int getValue(int index) {
+        return this.values[index];
+    }
+
+    public void setValue(int index, int value) {
+        checkNotFrozen();
+        this.values[index] = value;
+    }
+}
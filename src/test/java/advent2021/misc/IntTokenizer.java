@@ -0,0 +1,186 @@
+package advent2021.misc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+public final class IntTokenizer {
+
+   public static final IntTokenizer COMMAS = new IntTokenizer(",");
+   public static final IntTokenizer SPACES = new IntTokenizer(" ");
+
+   @FunctionalInterface
+   private interface Chars {
+      int at(int index);
+   }
+
+   @FunctionalInterface
+   private interface TokenConsumer {
+      void accept(int index, long value);
+   }
+
+   private final String separators;
+   private final long lowSeparators;
+   private final long highSeparators;
+
+   public IntTokenizer(String separators) {
+
+      long low = 0;
+      long high = 0;
+      for (int i = 0; i < separators.length(); i++) {
+
+         char c = separators.charAt(i);
+         if (c == '-' || c == '+' || Character.isDigit(c)) {
+            throw new IllegalArgumentException("'" + c + "' cannot be used as a separator");
+         } else if (c < 64) {
+            low |= 1L << c;
+         } else if (c < 128) {
+            high |= 1L << (c - 64);
+         }
+      }
+
+      this.separators = separators;
+      this.lowSeparators = low;
+      this.highSeparators = high;
+   }
+
+   public boolean isSeparator(int c) {
+
+      if (c < 64) {
+         return (lowSeparators & (1L << c)) != 0;
+      } else if (c < 128) {
+         return (highSeparators & (1L << (c - 64))) != 0;
+      } else {
+         return separators.indexOf(c) >= 0;
+      }
+   }
+
+   public int forEachInt(CharSequence s, IntConsumer consumer) {
+      return tokenize(s::charAt, 0, s.length(), (index, value) -> consumer.accept(toInt(value, index)));
+   }
+
+   public int forEachInt(ByteBuffer buffer, IntConsumer consumer) {
+      return tokenize(i -> buffer.get(i) & 0xFF, buffer.position(), buffer.limit(), (index, value) -> consumer.accept(toInt(value, index)));
+   }
+
+   public int forEachLong(CharSequence s, LongConsumer consumer) {
+      return tokenize(s::charAt, 0, s.length(), (index, value) -> consumer.accept(value));
+   }
+
+   public int forEachLong(ByteBuffer buffer, LongConsumer consumer) {
+      return tokenize(i -> buffer.get(i) & 0xFF, buffer.position(), buffer.limit(), (index, value) -> consumer.accept(value));
+   }
+
+   public int parseInts(CharSequence s, int[] target) {
+      return tokenize(s::charAt, 0, s.length(), (index, value) -> target[checkCapacity(index, target.length)] = toInt(value, index));
+   }
+
+   public int parseInts(ByteBuffer buffer, int[] target) {
+      return tokenize(i -> buffer.get(i) & 0xFF, buffer.position(), buffer.limit(),
+            (index, value) -> target[checkCapacity(index, target.length)] = toInt(value, index));
+   }
+
+   public int parseLongs(CharSequence s, long[] target) {
+      return tokenize(s::charAt, 0, s.length(), (index, value) -> target[checkCapacity(index, target.length)] = value);
+   }
+
+   public int parseLongs(ByteBuffer buffer, long[] target) {
+      return tokenize(i -> buffer.get(i) & 0xFF, buffer.position(), buffer.limit(),
+            (index, value) -> target[checkCapacity(index, target.length)] = value);
+   }
+
+   public int[] toIntArray(CharSequence s) {
+
+      IntArrayBuilder builder = new IntArrayBuilder();
+      forEachInt(s, builder);
+      return builder.toArray();
+   }
+
+   public int[] toIntArray(ByteBuffer buffer) {
+
+      IntArrayBuilder builder = new IntArrayBuilder();
+      forEachInt(buffer, builder);
+      return builder.toArray();
+   }
+
+   private int tokenize(Chars chars, int from, int to, TokenConsumer consumer) {
+
+      int count = 0;
+      int i = from;
+
+      while (i < to) {
+
+         int c = chars.at(i);
+         if (isSeparator(c)) {
+            i++;
+            continue;
+         }
+
+         int tokenStart = i;
+         boolean negative = c == '-';
+         if (negative || c == '+') {
+            i++;
+         }
+
+         long value = 0;
+         int digitStart = i;
+         for (; i < to; i++) {
+
+            c = chars.at(i);
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+               break;
+            } else if (value < (Long.MIN_VALUE + digit) / 10) {
+               throw new NumberFormatException("Value at offset " + tokenStart + " does not fit in a long");
+            }
+            value = value * 10 - digit;
+         }
+
+         if (i == digitStart || (i < to && !isSeparator(c))) {
+            throw new NumberFormatException("Unexpected character at offset " + i);
+         } else if (!negative && value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Value at offset " + tokenStart + " does not fit in a long");
+         }
+
+         consumer.accept(count++, negative ? value : -value);
+      }
+
+      return count;
+   }
+
+   private static int toInt(long value, int index) {
+
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+         throw new NumberFormatException("Value #" + index + " does not fit in an int: " + value);
+      }
+      return (int) value;
+   }
+
+   private static int checkCapacity(int index, int capacity) {
+
+      if (index >= capacity) {
+         throw new IllegalArgumentException("More than " + capacity + " values to store");
+      }
+      return index;
+   }
+
+   private static final class IntArrayBuilder implements IntConsumer {
+
+      private int[] values = new int[16];
+      private int size;
+
+      @Override
+      public void accept(int value) {
+
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      int[] toArray() {
+         return Arrays.copyOf(values, size);
+      }
+   }
+}
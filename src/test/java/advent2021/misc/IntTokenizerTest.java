@@ -0,0 +1,95 @@
+package advent2021.misc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class IntTokenizerTest {
+
+   private static ByteBuffer bytes(String s) {
+      return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+   }
+
+   @Test
+   void splitOnRunsOfCustomSeparators() {
+
+      IntTokenizer tokenizer = new IntTokenizer(";| ");
+
+      assertThat(tokenizer.toIntArray("  1;;2 |3|  "), is(new int[] { 1, 2, 3 }));
+      assertThat(tokenizer.toIntArray(bytes("  1;;2 |3|  ")), is(new int[] { 1, 2, 3 }));
+      assertThat(tokenizer.toIntArray(""), is(new int[0]));
+      assertThat(IntTokenizer.COMMAS.toIntArray("4,5,,6"), is(new int[] { 4, 5, 6 }));
+      assertThat(tokenizer.isSeparator('|'), is(true));
+      assertThat(tokenizer.isSeparator(','), is(false));
+   }
+
+   @Test
+   void parseSignedValues() {
+
+      int[] target = new int[4];
+
+      assertThat(IntTokenizer.SPACES.parseInts("-1 +2 -2147483648 2147483647", target), is(4));
+      assertThat(target, is(new int[] { -1, 2, Integer.MIN_VALUE, Integer.MAX_VALUE }));
+
+      assertThat(IntTokenizer.SPACES.parseInts(bytes(" -7  8"), target), is(2));
+      assertThat(target[0], is(-7));
+      assertThat(target[1], is(8));
+   }
+
+   @Test
+   void parseLongValues() {
+
+      String s = "-9223372036854775808,9223372036854775807,-0,42";
+      long[] expected = { Long.MIN_VALUE, Long.MAX_VALUE, 0, 42 };
+
+      long[] target = new long[4];
+      assertThat(IntTokenizer.COMMAS.parseLongs(s, target), is(4));
+      assertThat(target, is(expected));
+
+      target = new long[4];
+      assertThat(IntTokenizer.COMMAS.parseLongs(bytes(s), target), is(4));
+      assertThat(target, is(expected));
+
+      List<Long> values = new ArrayList<>();
+      IntTokenizer.COMMAS.forEachLong(s, values::add);
+      IntTokenizer.COMMAS.forEachLong(bytes(s), values::add);
+      assertThat(values, is(List.of(Long.MIN_VALUE, Long.MAX_VALUE, 0L, 42L, Long.MIN_VALUE, Long.MAX_VALUE, 0L, 42L)));
+   }
+
+   @Test
+   void parseFromBufferPositionToLimit() {
+
+      ByteBuffer buffer = bytes("9,1,2,3,9");
+      buffer.position(2).limit(7);
+
+      List<Integer> values = new ArrayList<>();
+      assertThat(IntTokenizer.COMMAS.forEachInt(buffer, values::add), is(3));
+      assertThat(values, is(List.of(1, 2, 3)));
+   }
+
+   @Test
+   void rejectOverflow() {
+
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.parseLongs("9223372036854775808", new long[1]));
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.parseLongs("-9223372036854775809", new long[1]));
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.toIntArray("2147483648"));
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.toIntArray(bytes("1,-2147483649")));
+   }
+
+   @Test
+   void rejectMalformedInput() {
+
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.toIntArray("1,2a"));
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.toIntArray("1,-,2"));
+      assertThrows(NumberFormatException.class, () -> IntTokenizer.COMMAS.toIntArray("1 2"));
+      assertThrows(IllegalArgumentException.class, () -> IntTokenizer.COMMAS.parseInts("1,2,3", new int[2]));
+      assertThrows(IllegalArgumentException.class, () -> new IntTokenizer(",-"));
+   }
+}
@@ -0,0 +1,250 @@
+package advent2021.misc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+public final class MappedLineReader implements Closeable {
+
+   private static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+   private static final int MIN_WINDOW_SIZE = 1 << 12;
+
+   private final FileChannel channel;
+   private final long size;
+   private final int windowSize;
+
+   private MappedByteBuffer window;
+   private long windowPosition;
+   private int windowLimit;
+
+   private int next;
+   private int lineStart;
+   private int lineEnd;
+
+   private MappedLineReader(FileChannel channel, int windowSize) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.windowSize = windowSize;
+   }
+
+   public static MappedLineReader open(Path path) throws IOException {
+      return open(path, DEFAULT_WINDOW_SIZE);
+   }
+
+   public static MappedLineReader open(Path path, int windowSize) throws IOException {
+
+      if (windowSize < MIN_WINDOW_SIZE) {
+         throw new IllegalArgumentException("Window size must be at least " + MIN_WINDOW_SIZE + " bytes but got " + windowSize);
+      }
+      return new MappedLineReader(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+   }
+
+   public static MappedLineReader openResource(String s) throws IOException {
+      return open(Utils.resourcePath(s));
+   }
+
+   public boolean nextLine() throws IOException {
+
+      if (window == null || next >= windowLimit) {
+         if (!mapNextWindow()) {
+            return false;
+         }
+      }
+
+      int end = next;
+      while (end < windowLimit && window.get(end) != '\n') {
+         end++;
+      }
+
+      lineStart = next;
+      lineEnd = end > lineStart && window.get(end - 1) == '\r' ? end - 1 : end;
+      next = end + 1;
+      return true;
+   }
+
+   private boolean mapNextWindow() throws IOException {
+
+      long position = window == null ? 0 : windowPosition + windowLimit;
+      if (position >= size) {
+         return false;
+      }
+
+      int length = (int) Math.min(windowSize, size - position);
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+      int limit = length;
+      if (position + length < size) {
+         while (limit > 0 && mapped.get(limit - 1) != '\n') {
+            limit--;
+         }
+         if (limit == 0) {
+            throw new IOException("Line at offset " + position + " does not fit in a window of " + windowSize + " bytes");
+         }
+      }
+
+      this.window = mapped;
+      this.windowPosition = position;
+      this.windowLimit = limit;
+      this.next = 0;
+      return true;
+   }
+
+   public int length() {
+      return lineEnd - lineStart;
+   }
+
+   public boolean isBlank() {
+
+      for (int i = lineStart; i < lineEnd; i++) {
+         if (!Character.isWhitespace(window.get(i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   public byte byteAt(int index) {
+      return window.get(lineStart + index);
+   }
+
+   public int copyTo(byte[] target) {
+
+      int length = Math.min(length(), target.length);
+      window.get(lineStart, target, 0, length);
+      return length;
+   }
+
+   public int parseInt() {
+      return Math.toIntExact(parseLong());
+   }
+
+   public long parseLong() {
+
+      int i = lineStart;
+      while (i < lineEnd && window.get(i) == ' ') {
+         i++;
+      }
+
+      int end = lineEnd;
+      while (end > i && window.get(end - 1) == ' ') {
+         end--;
+      }
+
+      boolean negative = i < end && window.get(i) == '-';
+      if (negative || (i < end && window.get(i) == '+')) {
+         i++;
+      }
+
+      if (i >= end) {
+         throw new NumberFormatException("No digits at offset " + (windowPosition + lineStart));
+      }
+
+      long value = 0;
+      for (; i < end; i++) {
+
+         int digit = window.get(i) - '0';
+         if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("Unexpected character '" + (char) window.get(i) + "' at offset " + (windowPosition + i));
+         }
+
+         try {
+            value = Math.multiplyExact(value, 10);
+            value = negative ? Math.subtractExact(value, digit) : Math.addExact(value, digit);
+         } catch (ArithmeticException e) {
+            throw new NumberFormatException("Value at offset " + (windowPosition + lineStart) + " does not fit in a long");
+         }
+      }
+      return value;
+   }
+
+   public long parseBinary() {
+
+      if (lineEnd == lineStart) {
+         throw new NumberFormatException("No binary digits at offset " + (windowPosition + lineStart));
+      } else if (lineEnd - lineStart > Long.SIZE) {
+         throw new NumberFormatException("Binary value at offset " + (windowPosition + lineStart) + " has more than " + Long.SIZE + " digits");
+      }
+
+      long value = 0;
+      for (int i = lineStart; i < lineEnd; i++) {
+
+         byte b = window.get(i);
+         if (b != '0' && b != '1') {
+            throw new NumberFormatException("Unexpected character '" + (char) b + "' at offset " + (windowPosition + i));
+         }
+         value = (value << 1) | (b - '0');
+      }
+      return value;
+   }
+
+   @Override
+   public void close() throws IOException {
+      window = null;
+      channel.close();
+   }
+
+   public PrimitiveIterator.OfLong longIterator() {
+
+      return new PrimitiveIterator.OfLong() {
+
+         private boolean hasNext;
+         private boolean fetched;
+
+         @Override
+         public boolean hasNext() {
+
+            if (!fetched) {
+               try {
+                  do {
+                     hasNext = nextLine();
+                  } while (hasNext && isBlank());
+               } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+               }
+               fetched = true;
+            }
+            return hasNext;
+         }
+
+         @Override
+         public long nextLong() {
+
+            if (!hasNext()) {
+               throw new NoSuchElementException();
+            }
+            fetched = false;
+            return parseLong();
+         }
+      };
+   }
+
+   public static LongStream longs(Path path) throws IOException {
+
+      MappedLineReader reader = open(path);
+
+      Spliterator.OfLong spliterator = Spliterators.spliteratorUnknownSize(reader.longIterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+
+      return StreamSupport.longStream(spliterator, false).onClose(() -> {
+         try {
+            reader.close();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
+   }
+
+   public static IntStream ints(Path path) throws IOException {
+      return longs(path).mapToInt(Math::toIntExact);
+   }
+}
@@ -0,0 +1,122 @@
+package advent2021.misc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedLineReaderTest {
+
+   private static final int WINDOW_SIZE = 4096;
+
+   @Test
+   void readLinesStraddlingWindows(@TempDir Path dir) throws IOException {
+
+      List<String> expected = new ArrayList<>();
+      StringBuilder content = new StringBuilder();
+      for (int i = 0; i < 5_000; i++) {
+         String line = i % 11 == 0 ? "" : Integer.toString(i).repeat(1 + i % 7);
+         expected.add(line);
+         content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+      }
+
+      Path input = dir.resolve("lines.txt");
+      Files.writeString(input, content);
+
+      List<String> lines = new ArrayList<>();
+      byte[] buffer = new byte[64];
+      try (var reader = MappedLineReader.open(input, WINDOW_SIZE)) {
+         while (reader.nextLine()) {
+            lines.add(new String(buffer, 0, reader.copyTo(buffer), StandardCharsets.US_ASCII));
+         }
+      }
+
+      assertThat(lines, is(expected));
+   }
+
+   @Test
+   void iterateOverLongsStraddlingWindows(@TempDir Path dir) throws IOException {
+
+      List<String> values = new ArrayList<>();
+      long expected = 0;
+      for (long i = 0; i < 20_000; i++) {
+         long value = (i * 7919) % 1_000_003 - 500_000;
+         values.add(Long.toString(value));
+         expected += value;
+      }
+
+      Path input = dir.resolve("longs.txt");
+      Files.write(input, values);
+
+      long sum = 0;
+      try (var reader = MappedLineReader.open(input, WINDOW_SIZE)) {
+         var iterator = reader.longIterator();
+         while (iterator.hasNext()) {
+            sum += iterator.nextLong();
+         }
+      }
+
+      assertThat(sum, is(expected));
+   }
+
+   @Test
+   void rejectLinesLongerThanTheWindow(@TempDir Path dir) throws IOException {
+
+      Path input = dir.resolve("long-line.txt");
+      Files.write(input, List.of("1", "2".repeat(WINDOW_SIZE + 1), "3"));
+
+      try (var reader = MappedLineReader.open(input, WINDOW_SIZE)) {
+         assertThat(reader.nextLine(), is(true));
+         assertThat(reader.parseLong(), is(1L));
+         assertThrows(IOException.class, reader::nextLine);
+      }
+   }
+
+   @Test
+   void rejectTinyWindows(@TempDir Path dir) throws IOException {
+
+      Path input = dir.resolve("empty.txt");
+      Files.createFile(input);
+
+      assertThrows(IllegalArgumentException.class, () -> MappedLineReader.open(input, 16));
+   }
+
+   @Test
+   void parseNumbersStrictly(@TempDir Path dir) throws IOException {
+
+      Path input = dir.resolve("values.txt");
+      Files.write(input, List.of("9223372036854775807", "-9223372036854775808", " +42 ", "12a", "-",
+            "9223372036854775808", "1011", "102", "1".repeat(65)));
+
+      try (var reader = MappedLineReader.open(input)) {
+
+         reader.nextLine();
+         assertThat(reader.parseLong(), is(Long.MAX_VALUE));
+         reader.nextLine();
+         assertThat(reader.parseLong(), is(Long.MIN_VALUE));
+         reader.nextLine();
+         assertThat(reader.parseLong(), is(42L));
+         reader.nextLine();
+         assertThrows(NumberFormatException.class, reader::parseLong);
+         reader.nextLine();
+         assertThrows(NumberFormatException.class, reader::parseLong);
+         reader.nextLine();
+         assertThrows(NumberFormatException.class, reader::parseLong);
+         reader.nextLine();
+         assertThat(reader.parseBinary(), is(11L));
+         reader.nextLine();
+         assertThrows(NumberFormatException.class, reader::parseBinary);
+         reader.nextLine();
+         assertThrows(NumberFormatException.class, reader::parseBinary);
+      }
+   }
+}
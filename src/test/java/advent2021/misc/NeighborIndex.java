@@ -0,0 +1,85 @@
+package advent2021.misc;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+public final class NeighborIndex {
+
+    private static final int[][] ALL_MOVES = {
+            {-1, -1}, {0, -1}, {+1, -1},
+            {-1,  0},          {+1,  0},
+            {-1, +1}, {0, +1}, {+1, +1}
+    };
+
+    private static final int[][] ALL_BUT_DIAGONAL_MOVES = {
+            {0, -1}, {-1, 0}, {+1, 0}, {0, +1}
+    };
+
+    private final int colCount;
+    private final int rowCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+
+    private NeighborIndex(int colCount, int rowCount, int[] offsets, int[] neighbors) {
+        this.colCount = colCount;
+        this.rowCount = rowCount;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    public static NeighborIndex build(int colCount, int rowCount, boolean withDiagonals) {
+
+        int[][] moves = withDiagonals ? ALL_MOVES : ALL_BUT_DIAGONAL_MOVES;
+
+        int[] offsets = new int[colCount * rowCount + 1];
+        int[] neighbors = new int[colCount * rowCount * moves.length];
+
+        int count = 0;
+        for (int y = 0; y < rowCount; y++) {
+            for (int x = 0; x < colCount; x++) {
+
+                offsets[y * colCount + x] = count;
+
+                for (int[] move : moves) {
+
+                    int nx = x + move[0];
+                    int ny = y + move[1];
+
+                    if (ny >= 0 && ny < rowCount && nx >= 0 && nx < colCount) {
+                        neighbors[count++] = ny * colCount + nx;
+                    }
+                }
+            }
+        }
+        offsets[colCount * rowCount] = count;
+
+        return new NeighborIndex(colCount, rowCount, offsets, Arrays.copyOf(neighbors, count));
+    }
+
+    boolean matches(int colCount, int rowCount) {
+        return this.colCount == colCount && this.rowCount == rowCount;
+    }
+
+    public int start(int cell) {
+        return offsets[cell];
+    }
+
+    public int end(int cell) {
+        return offsets[cell + 1];
+    }
+
+    public int degree(int cell) {
+        return offsets[cell + 1] - offsets[cell];
+    }
+
+    public int neighborAt(int position) {
+        return neighbors[position];
+    }
+
+    public void forEachNeighbor(int cell, IntConsumer visitor) {
+
+        for (int i = offsets[cell], end = offsets[cell + 1]; i < end; i++) {
+            visitor.accept(neighbors[i]);
+        }
+    }
+}
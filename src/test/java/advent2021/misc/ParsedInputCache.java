@@ -0,0 +1,172 @@
+package advent2021.misc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.ToLongFunction;
+
+public final class ParsedInputCache {
+
+   private static final long DEFAULT_MAX_INPUT_BYTES = 64L << 20;
+
+   private static final ParsedInputCache SHARED = new ParsedInputCache(DEFAULT_MAX_INPUT_BYTES);
+
+   @FunctionalInterface
+   public interface Parser<T> {
+      T parse(String resourceName) throws IOException;
+   }
+
+   private record Key(String resourceName, Object parserId) {}
+
+   private record Entry(Object value, long inputBytes) {}
+
+   private final long maxInputBytes;
+   private final ToLongFunction<String> inputSize;
+   private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+   private final Map<Key, SoftReference<Entry>> evictedEntries = new HashMap<>();
+   private final Map<Key, FutureTask<Object>> pendingLoads = new ConcurrentHashMap<>();
+   private long inputBytes;
+
+   public ParsedInputCache(long maxInputBytes) {
+      this(maxInputBytes, ParsedInputCache::resourceSize);
+   }
+
+   ParsedInputCache(long maxInputBytes, ToLongFunction<String> inputSize) {
+
+      if (maxInputBytes <= 0) {
+         throw new IllegalArgumentException("Maximum input bytes must be positive but got " + maxInputBytes);
+      }
+      this.maxInputBytes = maxInputBytes;
+      this.inputSize = inputSize;
+   }
+
+   public static ParsedInputCache shared() {
+      return SHARED;
+   }
+
+   @SuppressWarnings("unchecked")
+   public <T> T get(String resourceName, Object parserId, Parser<T> parser) throws IOException {
+
+      Key key = new Key(resourceName, parserId);
+
+      Object cached = lookup(key);
+      if (cached != null) {
+         return (T) cached;
+      }
+
+      FutureTask<Object> load = new FutureTask<>(() -> {
+
+         Object loaded = lookup(key);
+         if (loaded == null) {
+            loaded = parser.parse(resourceName);
+            store(key, new Entry(loaded, inputSize.applyAsLong(resourceName)));
+         }
+         return loaded;
+      });
+
+      FutureTask<Object> pending = pendingLoads.putIfAbsent(key, load);
+      if (pending != null) {
+         return (T) await(pending);
+      }
+
+      try {
+         load.run();
+         return (T) await(load);
+      } finally {
+         pendingLoads.remove(key, load);
+      }
+   }
+
+   public void put(String resourceName, Object parserId, Object value) {
+      store(new Key(resourceName, parserId), new Entry(value, inputSize.applyAsLong(resourceName)));
+   }
+
+   public synchronized void invalidateAll() {
+
+      entries.clear();
+      evictedEntries.clear();
+      inputBytes = 0;
+   }
+
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   public synchronized long inputBytes() {
+      return inputBytes;
+   }
+
+   private synchronized Object lookup(Key key) {
+
+      Entry entry = entries.get(key);
+      if (entry != null) {
+         return entry.value();
+      }
+
+      SoftReference<Entry> reference = evictedEntries.remove(key);
+      entry = reference == null ? null : reference.get();
+      if (entry != null) {
+         store(key, entry);
+         return entry.value();
+      }
+      return null;
+   }
+
+   private synchronized void store(Key key, Entry entry) {
+
+      Entry previous = entries.put(key, entry);
+      if (previous != null) {
+         inputBytes -= previous.inputBytes();
+      }
+      inputBytes += entry.inputBytes();
+
+      Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+      while (inputBytes > maxInputBytes && entries.size() > 1) {
+
+         Map.Entry<Key, Entry> evicted = eldest.next();
+         eldest.remove();
+         inputBytes -= evicted.getValue().inputBytes();
+         evictedEntries.put(evicted.getKey(), new SoftReference<>(evicted.getValue()));
+      }
+
+      evictedEntries.values().removeIf(reference -> reference.get() == null);
+   }
+
+   private static Object await(FutureTask<Object> load) throws IOException {
+
+      try {
+         return load.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for a parsed input");
+      } catch (ExecutionException e) {
+
+         Throwable cause = e.getCause();
+         if (cause instanceof IOException ioException) {
+            throw ioException;
+         } else if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+         } else if (cause instanceof Error error) {
+            throw error;
+         }
+         throw new IOException(cause);
+      }
+   }
+
+   private static long resourceSize(String resourceName) {
+
+      try {
+         return Math.max(1, Files.size(Utils.resourcePath(resourceName)));
+      } catch (IOException | RuntimeException e) {
+         return 1;
+      }
+   }
+}
@@ -0,0 +1,128 @@
+package advent2021.misc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class ParsedInputCacheTest {
+
+   private static final Map<String, Long> SIZES = Map.of("a", 3L, "b", 4L, "c", 5L);
+
+   private final AtomicInteger parseCount = new AtomicInteger();
+
+   private Object parse(String resourceName) {
+      parseCount.incrementAndGet();
+      return new Object();
+   }
+
+   private Object slowlyParse(String resourceName) throws IOException {
+
+      try {
+         Thread.sleep(20);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException();
+      }
+      return parse(resourceName);
+   }
+
+   private static Object failToParse(String resourceName) throws IOException {
+      throw new IOException("Should have been served from the cache: " + resourceName);
+   }
+
+   @Test
+   void evictLeastRecentlyUsedEntriesOverBudget() throws IOException {
+
+      ParsedInputCache cache = new ParsedInputCache(10, SIZES::get);
+
+      cache.get("a", this, this::parse);
+      cache.get("b", this, this::parse);
+      assertThat(cache.size(), is(2));
+      assertThat(cache.inputBytes(), is(7L));
+
+      cache.get("a", this, this::parse);
+      cache.get("c", this, this::parse);
+
+      assertThat(parseCount.get(), is(3));
+      assertThat(cache.size(), is(2));
+      assertThat(cache.inputBytes(), is(8L));
+   }
+
+   @Test
+   void accountForReplacedEntries() throws IOException {
+
+      ParsedInputCache cache = new ParsedInputCache(10, SIZES::get);
+      Object replacement = new Object();
+
+      cache.put("a", this, new Object());
+      cache.put("a", this, replacement);
+
+      assertThat(cache.size(), is(1));
+      assertThat(cache.inputBytes(), is(3L));
+      assertThat(cache.get("a", this, ParsedInputCacheTest::failToParse), sameInstance(replacement));
+
+      cache.invalidateAll();
+
+      assertThat(cache.size(), is(0));
+      assertThat(cache.inputBytes(), is(0L));
+   }
+
+   @Test
+   void fallBackOnSoftlyReachableEvictedEntries() throws IOException {
+
+      ParsedInputCache cache = new ParsedInputCache(5, SIZES::get);
+
+      Object a = cache.get("a", this, this::parse);
+      cache.get("b", this, this::parse);
+      assertThat(cache.size(), is(1));
+      assertThat(cache.inputBytes(), is(4L));
+
+      assertThat(cache.get("a", this, ParsedInputCacheTest::failToParse), sameInstance(a));
+      assertThat(parseCount.get(), is(2));
+      assertThat(cache.size(), is(1));
+      assertThat(cache.inputBytes(), is(3L));
+   }
+
+   @Test
+   void parseOnceForConcurrentLoadsOfTheSameKey() throws InterruptedException, ExecutionException {
+
+      ParsedInputCache cache = new ParsedInputCache(10, SIZES::get);
+      int threadCount = 8;
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+      try {
+         List<Future<Object>> results = new ArrayList<>();
+         for (int i = 0; i < threadCount; i++) {
+            results.add(executor.submit(() -> {
+               start.await();
+               return cache.get("a", this, this::slowlyParse);
+            }));
+         }
+
+         start.countDown();
+
+         Object first = results.get(0).get();
+         for (Future<Object> result : results) {
+            assertThat(result.get(), sameInstance(first));
+         }
+         assertThat(parseCount.get(), is(1));
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
@@ -0,0 +1,381 @@
+package advent2021.misc;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+   private static final int BITS = 5;
+   private static final int MAX_DEPTH = 8;
+
+   private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(Node.EMPTY, 0);
+
+   private final Node root;
+   private final int size;
+
+   private PersistentMap(Node root, int size) {
+      this.root = root;
+      this.size = size;
+   }
+
+   @SuppressWarnings("unchecked")
+   public static <K, V> PersistentMap<K, V> empty() {
+      return (PersistentMap<K, V>) EMPTY;
+   }
+
+   @SuppressWarnings("unchecked")
+   public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> m) {
+
+      if (m instanceof PersistentMap) {
+         return (PersistentMap<K, V>) m;
+      }
+
+      PersistentMap<K, V> result = empty();
+      for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+         result = result.plus(e.getKey(), e.getValue());
+      }
+      return result;
+   }
+
+   public PersistentMap<K, V> plus(K key, V value) {
+
+      Objects.requireNonNull(value);
+      Leaf<K, V> existing = find(key);
+      if (existing != null && existing.getValue() == value) {
+         return this;
+      }
+      return new PersistentMap<>(root.put(new Leaf<>(hash(key), key, value), 0), existing == null ? size + 1 : size);
+   }
+
+   public PersistentMap<K, V> plus(K key, V value, BinaryOperator<V> mergeFunction) {
+
+      Objects.requireNonNull(value);
+      Objects.requireNonNull(mergeFunction);
+      Leaf<K, V> existing = find(key);
+      if (existing == null) {
+         return plus(key, value);
+      }
+
+      V mergedValue = mergeFunction.apply(existing.getValue(), value);
+      return mergedValue == null ? minus(key) : plus(key, mergedValue);
+   }
+
+   public PersistentMap<K, V> minus(Object key) {
+
+      Object newRoot = root.remove(hash(key), key, 0);
+      if (newRoot == root) {
+         return this;
+      }
+      return newRoot == null ? empty() : new PersistentMap<>((Node) newRoot, size - 1);
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      return find(key) != null;
+   }
+
+   @Override
+   public V get(Object key) {
+
+      Leaf<K, V> leaf = find(key);
+      return leaf == null ? null : leaf.getValue();
+   }
+
+   @Override
+   public V getOrDefault(Object key, V defaultValue) {
+
+      Leaf<K, V> leaf = find(key);
+      return leaf == null ? defaultValue : leaf.getValue();
+   }
+
+   @Override
+   public Set<Map.Entry<K, V>> entrySet() {
+
+      return new AbstractSet<>() {
+
+         @Override
+         public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator<>(root);
+         }
+
+         @Override
+         public int size() {
+            return size;
+         }
+      };
+   }
+
+   @SuppressWarnings("unchecked")
+   private Leaf<K, V> find(Object key) {
+      return (Leaf<K, V>) root.find(hash(key), key, 0);
+   }
+
+   private static int hash(Object key) {
+
+      int h = Objects.hashCode(key);
+      return h ^ (h >>> 16);
+   }
+
+   private static int bit(int hash, int shift) {
+      return 1 << ((hash >>> shift) & ((1 << BITS) - 1));
+   }
+
+   private static final class Leaf<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+
+      final int hash;
+
+      Leaf(int hash, K key, V value) {
+         super(key, value);
+         this.hash = hash;
+      }
+
+      boolean matches(int hash, Object key) {
+         return this.hash == hash && Objects.equals(getKey(), key);
+      }
+   }
+
+   private static final class Collision {
+
+      final int hash;
+      final Leaf<?, ?>[] leaves;
+
+      Collision(int hash, Leaf<?, ?>[] leaves) {
+         this.hash = hash;
+         this.leaves = leaves;
+      }
+
+      Leaf<?, ?> find(int hash, Object key) {
+
+         for (Leaf<?, ?> leaf : leaves) {
+            if (leaf.matches(hash, key)) {
+               return leaf;
+            }
+         }
+         return null;
+      }
+
+      Collision put(Leaf<?, ?> leaf) {
+
+         for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].matches(leaf.hash, leaf.getKey())) {
+               return new Collision(hash, replace(leaves, i, leaf));
+            }
+         }
+         return new Collision(hash, insert(leaves, leaves.length, leaf));
+      }
+
+      Object remove(int hash, Object key) {
+
+         for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].matches(hash, key)) {
+               return leaves.length == 2 ? leaves[1 - i] : new Collision(hash, delete(leaves, i));
+            }
+         }
+         return this;
+      }
+   }
+
+   private static final class Node {
+
+      static final Node EMPTY = new Node(0, new Object[0]);
+
+      final int bitmap;
+      final Object[] slots;
+
+      Node(int bitmap, Object[] slots) {
+         this.bitmap = bitmap;
+         this.slots = slots;
+      }
+
+      Leaf<?, ?> find(int hash, Object key, int shift) {
+
+         int bit = bit(hash, shift);
+         if ((bitmap & bit) == 0) {
+            return null;
+         }
+
+         Object slot = slots[index(bit)];
+         if (slot instanceof Node node) {
+            return node.find(hash, key, shift + BITS);
+         } else if (slot instanceof Collision collision) {
+            return collision.find(hash, key);
+         } else {
+            Leaf<?, ?> leaf = (Leaf<?, ?>) slot;
+            return leaf.matches(hash, key) ? leaf : null;
+         }
+      }
+
+      Node put(Leaf<?, ?> leaf, int shift) {
+
+         int bit = bit(leaf.hash, shift);
+         int index = index(bit);
+
+         if ((bitmap & bit) == 0) {
+            return new Node(bitmap | bit, insert(slots, index, leaf));
+         }
+
+         Object slot = slots[index];
+         Object replacement;
+
+         if (slot instanceof Node node) {
+            replacement = node.put(leaf, shift + BITS);
+         } else if (slot instanceof Collision collision && collision.hash == leaf.hash) {
+            replacement = collision.put(leaf);
+         } else if (slot instanceof Leaf<?, ?> other && other.matches(leaf.hash, leaf.getKey())) {
+            replacement = leaf;
+         } else {
+            replacement = join(shift + BITS, slot, leaf);
+         }
+
+         return new Node(bitmap, replace(slots, index, replacement));
+      }
+
+      Object remove(int hash, Object key, int shift) {
+
+         int bit = bit(hash, shift);
+         if ((bitmap & bit) == 0) {
+            return this;
+         }
+
+         int index = index(bit);
+         Object slot = slots[index];
+         Object replacement;
+
+         if (slot instanceof Node node) {
+            replacement = node.remove(hash, key, shift + BITS);
+         } else if (slot instanceof Collision collision) {
+            replacement = collision.remove(hash, key);
+         } else {
+            replacement = ((Leaf<?, ?>) slot).matches(hash, key) ? null : slot;
+         }
+
+         if (replacement == slot) {
+            return this;
+         } else if (replacement == null) {
+
+            if (slots.length == 1) {
+               return null;
+            }
+
+            Object[] remainingSlots = delete(slots, index);
+            if (shift > 0 && remainingSlots.length == 1 && !(remainingSlots[0] instanceof Node)) {
+               return remainingSlots[0];
+            }
+            return new Node(bitmap & ~bit, remainingSlots);
+
+         } else if (shift > 0 && slots.length == 1 && !(replacement instanceof Node)) {
+            return replacement;
+         } else {
+            return new Node(bitmap, replace(slots, index, replacement));
+         }
+      }
+
+      private int index(int bit) {
+         return Integer.bitCount(bitmap & (bit - 1));
+      }
+
+      private static Object join(int shift, Object slot, Leaf<?, ?> leaf) {
+
+         int slotHash = slot instanceof Collision collision ? collision.hash : ((Leaf<?, ?>) slot).hash;
+
+         if (slotHash == leaf.hash) {
+            return new Collision(leaf.hash, new Leaf<?, ?>[] { (Leaf<?, ?>) slot, leaf });
+         }
+
+         int slotBit = bit(slotHash, shift);
+         int leafBit = bit(leaf.hash, shift);
+
+         if (slotBit == leafBit) {
+            return new Node(slotBit, new Object[] { join(shift + BITS, slot, leaf) });
+         }
+         return new Node(slotBit | leafBit,
+               Integer.compareUnsigned(slotBit, leafBit) < 0 ? new Object[] { slot, leaf } : new Object[] { leaf, slot });
+      }
+   }
+
+   private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+      private final Object[][] stack = new Object[MAX_DEPTH][];
+      private final int[] positions = new int[MAX_DEPTH];
+      private int depth;
+      private Leaf<K, V> next;
+
+      EntryIterator(Node root) {
+         this.stack[0] = root.slots;
+         advance();
+      }
+
+      @Override
+      public boolean hasNext() {
+         return next != null;
+      }
+
+      @Override
+      public Map.Entry<K, V> next() {
+
+         if (next == null) {
+            throw new NoSuchElementException();
+         }
+         Leaf<K, V> result = next;
+         advance();
+         return result;
+      }
+
+      @SuppressWarnings("unchecked")
+      private void advance() {
+
+         next = null;
+         while (depth >= 0) {
+
+            if (positions[depth] == stack[depth].length) {
+               depth--;
+               continue;
+            }
+
+            Object slot = stack[depth][positions[depth]++];
+            if (slot instanceof Leaf<?, ?> leaf) {
+               next = (Leaf<K, V>) leaf;
+               return;
+            }
+
+            depth++;
+            stack[depth] = slot instanceof Node node ? node.slots : ((Collision) slot).leaves;
+            positions[depth] = 0;
+         }
+      }
+   }
+
+   private static <T> T[] insert(T[] values, int index, T value) {
+
+      T[] result = Arrays.copyOf(values, values.length + 1);
+      System.arraycopy(values, index, result, index + 1, values.length - index);
+      result[index] = value;
+      return result;
+   }
+
+   private static <T> T[] replace(T[] values, int index, T value) {
+
+      T[] result = values.clone();
+      result[index] = value;
+      return result;
+   }
+
+   private static <T> T[] delete(T[] values, int index) {
+
+      T[] result = Arrays.copyOf(values, values.length - 1);
+      System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+      return result;
+   }
+}
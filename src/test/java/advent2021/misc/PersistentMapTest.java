@@ -0,0 +1,87 @@
+package advent2021.misc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PersistentMapTest {
+
+   static List<String> keysWithCollisions() {
+
+      List<String> keys = new ArrayList<>(List.of("Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"));
+      for (int i = 0; i < 500; i++) {
+         keys.add("v" + i);
+      }
+      return keys;
+   }
+
+   @Test
+   void behaveLikeHashMap() {
+
+      List<String> keys = keysWithCollisions();
+      Random random = new Random(2021);
+      Map<String, Integer> expected = new HashMap<>();
+      PersistentMap<String, Integer> actual = PersistentMap.empty();
+
+      for (int i = 0; i < 5_000; i++) {
+
+         String key = keys.get(random.nextInt(keys.size()));
+         int value = random.nextInt(4);
+
+         PersistentMap<String, Integer> previous = actual;
+         Map<String, Integer> previousContent = new HashMap<>(expected);
+
+         if (random.nextInt(3) == 0) {
+            expected.remove(key);
+            actual = actual.minus(key);
+         } else {
+            expected.merge(key, value, (a, b) -> a + b == 0 ? null : a + b);
+            actual = actual.plus(key, value, (a, b) -> a + b == 0 ? null : a + b);
+         }
+
+         assertThat(previous, is(previousContent));
+         assertSameContent(actual, expected);
+      }
+
+      for (String key : keys) {
+         actual = actual.minus(key);
+         expected.remove(key);
+         assertSameContent(actual, expected);
+      }
+
+      assertThat(actual.isEmpty(), is(true));
+      assertThat(actual.entrySet().iterator().hasNext(), is(false));
+   }
+
+   @Test
+   void rejectNullValues() {
+
+      PersistentMap<String, Integer> empty = PersistentMap.empty();
+
+      assertThrows(NullPointerException.class, () -> empty.plus("Aa", null));
+      assertThrows(NullPointerException.class, () -> empty.plus("Aa", 1).plus("Aa", null, Integer::sum));
+   }
+
+   private static void assertSameContent(PersistentMap<String, Integer> actual, Map<String, Integer> expected) {
+
+      assertThat(actual, is(expected));
+      assertThat(expected.equals(actual), is(true));
+      assertThat(actual.hashCode(), is(expected.hashCode()));
+      assertThat(actual.size(), is(expected.size()));
+
+      int iterated = 0;
+      for (Map.Entry<String, Integer> entry : actual.entrySet()) {
+         assertThat(entry.getValue(), is(expected.get(entry.getKey())));
+         iterated++;
+      }
+      assertThat(iterated, is(expected.size()));
+   }
+}
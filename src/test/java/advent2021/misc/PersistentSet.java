@@ -0,0 +1,66 @@
+package advent2021.misc;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+public final class PersistentSet<E> extends AbstractSet<E> {
+
+   private static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.empty());
+
+   private final PersistentMap<E, Boolean> map;
+
+   private PersistentSet(PersistentMap<E, Boolean> map) {
+      this.map = map;
+   }
+
+   @SuppressWarnings("unchecked")
+   public static <E> PersistentSet<E> empty() {
+      return (PersistentSet<E>) EMPTY;
+   }
+
+   @SuppressWarnings("unchecked")
+   public static <E> PersistentSet<E> copyOf(Collection<? extends E> values) {
+
+      if (values instanceof PersistentSet) {
+         return (PersistentSet<E>) values;
+      }
+      return PersistentSet.<E>empty().plusAll(values);
+   }
+
+   public PersistentSet<E> plus(E value) {
+
+      PersistentMap<E, Boolean> newMap = map.plus(value, Boolean.TRUE);
+      return newMap == map ? this : new PersistentSet<>(newMap);
+   }
+
+   public PersistentSet<E> plusAll(Collection<? extends E> values) {
+
+      PersistentMap<E, Boolean> newMap = map;
+      for (E value : values) {
+         newMap = newMap.plus(value, Boolean.TRUE);
+      }
+      return newMap == map ? this : new PersistentSet<>(newMap);
+   }
+
+   public PersistentSet<E> minus(Object value) {
+
+      PersistentMap<E, Boolean> newMap = map.minus(value);
+      return newMap == map ? this : new PersistentSet<>(newMap);
+   }
+
+   @Override
+   public boolean contains(Object o) {
+      return map.containsKey(o);
+   }
+
+   @Override
+   public Iterator<E> iterator() {
+      return map.keySet().iterator();
+   }
+
+   @Override
+   public int size() {
+      return map.size();
+   }
+}
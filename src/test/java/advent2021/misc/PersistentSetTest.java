@@ -0,0 +1,85 @@
+package advent2021.misc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class PersistentSetTest {
+
+   @Test
+   void behaveLikeHashSet() {
+
+      List<String> values = PersistentMapTest.keysWithCollisions();
+      Random random = new Random(2021);
+      Set<String> expected = new HashSet<>();
+      PersistentSet<String> actual = PersistentSet.empty();
+
+      for (int i = 0; i < 5_000; i++) {
+
+         String value = values.get(random.nextInt(values.size()));
+
+         PersistentSet<String> previous = actual;
+         Set<String> previousContent = new HashSet<>(expected);
+
+         switch (random.nextInt(3)) {
+            case 0 -> {
+               expected.remove(value);
+               actual = actual.minus(value);
+            }
+            case 1 -> {
+               expected.add(value);
+               actual = actual.plus(value);
+            }
+            default -> {
+               List<String> others = List.of(value, values.get(random.nextInt(values.size())));
+               expected.addAll(others);
+               actual = actual.plusAll(others);
+            }
+         }
+
+         assertThat(previous, is(previousContent));
+         assertSameContent(actual, expected);
+      }
+
+      for (String value : values) {
+         actual = actual.minus(value);
+         expected.remove(value);
+         assertSameContent(actual, expected);
+      }
+
+      assertThat(actual.isEmpty(), is(true));
+      assertThat(actual.iterator().hasNext(), is(false));
+   }
+
+   @Test
+   void keepSharedInstancesWhenNothingChanges() {
+
+      PersistentSet<String> set = PersistentSet.copyOf(List.of("Aa", "BB"));
+
+      assertThat(set.plus("Aa") == set, is(true));
+      assertThat(set.minus("C") == set, is(true));
+      assertThat(PersistentSet.copyOf(set) == set, is(true));
+      assertThat(set.plus(null).contains(null), is(true));
+   }
+
+   private static void assertSameContent(PersistentSet<String> actual, Set<String> expected) {
+
+      assertThat(actual, is(expected));
+      assertThat(expected.equals(actual), is(true));
+      assertThat(actual.hashCode(), is(expected.hashCode()));
+      assertThat(actual.size(), is(expected.size()));
+
+      int iterated = 0;
+      for (String value : actual) {
+         assertThat(expected.contains(value), is(true));
+         iterated++;
+      }
+      assertThat(iterated, is(expected.size()));
+   }
+}
@@ -0,0 +1,122 @@
+package advent2021.misc;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.FlowableTransformer;
+
+public final class SlidingWindow implements FlowableOperator<Integer, Integer> {
+
+   public interface Aggregate {
+      int apply(int sum, int oldest, int newest);
+   }
+
+   private final int size;
+   private final Aggregate aggregate;
+
+   public SlidingWindow(int size, Aggregate aggregate) {
+
+      if (size < 1) {
+         throw new IllegalArgumentException("Window size must be positive: " + size);
+      }
+      this.size = size;
+      this.aggregate = aggregate;
+   }
+
+   public static SlidingWindow sums(int size) {
+      return new SlidingWindow(size, (sum, oldest, newest) -> sum);
+   }
+
+   public static SlidingWindow increases(int size) {
+      return new SlidingWindow(size, (sum, oldest, newest) -> newest > oldest ? 1 : 0);
+   }
+
+   public static FlowableTransformer<Integer, Integer> windowSums(int size) {
+      return upstream -> upstream.lift(sums(size));
+   }
+
+   public static FlowableTransformer<Integer, Integer> windowIncreases(int size) {
+      return upstream -> upstream.lift(increases(size));
+   }
+
+   @Override
+   public Subscriber<? super Integer> apply(Subscriber<? super Integer> downstream) {
+      return new WindowSubscriber(downstream, size, aggregate);
+   }
+
+   static final class WindowSubscriber implements FlowableSubscriber<Integer>, Subscription {
+
+      private final Subscriber<? super Integer> downstream;
+      private final Aggregate aggregate;
+      private final int[] window;
+
+      private Subscription upstream;
+      private int filled;
+      private int oldest;
+      private int sum;
+
+      WindowSubscriber(Subscriber<? super Integer> downstream, int size, Aggregate aggregate) {
+         this.downstream = downstream;
+         this.aggregate = aggregate;
+         this.window = new int[size];
+      }
+
+      @Override
+      public void onSubscribe(Subscription s) {
+
+         if (upstream != null) {
+            s.cancel();
+            return;
+         }
+         upstream = s;
+         downstream.onSubscribe(this);
+      }
+
+      @Override
+      public void onNext(Integer t) {
+
+         int value = t;
+
+         if (filled < window.length) {
+
+            window[filled++] = value;
+            sum += value;
+
+            if (filled < window.length) {
+               upstream.request(1);
+               return;
+            }
+            downstream.onNext(aggregate.apply(sum, window[0], value));
+            return;
+         }
+
+         sum += value - window[oldest];
+         window[oldest] = value;
+         oldest = oldest + 1 == window.length ? 0 : oldest + 1;
+
+         downstream.onNext(aggregate.apply(sum, window[oldest], value));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+         downstream.onError(t);
+      }
+
+      @Override
+      public void onComplete() {
+         downstream.onComplete();
+      }
+
+      @Override
+      public void request(long n) {
+         upstream.request(n);
+      }
+
+      @Override
+      public void cancel() {
+         upstream.cancel();
+      }
+   }
+}
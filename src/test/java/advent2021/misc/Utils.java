@@ -3,10 +3,14 @@ package advent2021.misc;
 import org.javatuples.Pair;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -43,13 +47,43 @@ public class Utils {
       
       for (int i = 0; i < s.length(); i++) {
          
-         char c = s.charAt(i);
-         result.add(Integer.parseInt("" + c));
+         result.add(digitAt(s, i));
       }
       
       return result;
    }
-   
+
+   public static int[] digitsToIntArray(String s) {
+
+      int[] result = new int[s.length()];
+
+      for (int i = 0; i < s.length(); i++) {
+         result[i] = digitAt(s, i);
+      }
+
+      return result;
+   }
+
+   public static byte[] digitsToByteArray(String s) {
+
+      byte[] result = new byte[s.length()];
+
+      for (int i = 0; i < s.length(); i++) {
+         result[i] = (byte) digitAt(s, i);
+      }
+
+      return result;
+   }
+
+   private static int digitAt(String s, int index) {
+
+      char c = s.charAt(index);
+      if (c < '0' || c > '9') {
+         throw new IllegalArgumentException("Expected a digit at index " + index + " but got '" + c + "'");
+      }
+      return c - '0';
+   }
+
    public static String readSingleValueFromResources(String s) throws IOException {
       
       return readValuesFromResources(s).get(0);
@@ -70,6 +104,9 @@ public class Utils {
 
       List<T> result = new ArrayList<>();
 
+      InputLoadEvent event = new InputLoadEvent();
+      event.begin();
+
       InputStream is = Utils.class.getResourceAsStream(s);
 
       try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
@@ -79,6 +116,26 @@ public class Utils {
             result.add(converter.apply(line));
          }
          return result;
+      } finally {
+         if (event.shouldCommit()) {
+            event.resourceName = s;
+            event.recordCount = result.size();
+            event.commit();
+         }
+      }
+   }
+
+   public static Path resourcePath(String s) throws IOException {
+
+      URL url = Utils.class.getResource(s);
+      if (url == null) {
+         throw new FileNotFoundException(s);
+      }
+
+      try {
+         return Path.of(url.toURI());
+      } catch (URISyntaxException e) {
+         throw new IOException(e);
       }
    }
 
@@ -97,25 +154,25 @@ public class Utils {
       return result;
    }
 
+   public static int[] splitToIntArray(String s, String separators) {
+      return new IntTokenizer(separators).toIntArray(s);
+   }
+
    public static class Maps {
 
       public static <K,V> Map<K,V> add(Map<K,V> m, K k, V v, BinaryOperator<V> mergeFunction) {
-
-         Map<K,V> result = new HashMap<>();
-         result.putAll(m);
-         result.merge(k, v, (v1, v2) -> mergeFunction.apply(v1, v2));
-         return result;
+         return PersistentMap.copyOf(m).plus(k, v, mergeFunction);
       }
    }
    
    public static class Sets {
       
       public static <T> Set<T> union(Set<T> s1, Set<T> s2) {
-         
-         Set<T> result = new HashSet<>();
-         result.addAll(s1);
-         result.addAll(s2);
-         return result;
+
+         if (s2 instanceof PersistentSet<T> p2 && !(s1 instanceof PersistentSet)) {
+            return p2.plusAll(s1);
+         }
+         return PersistentSet.copyOf(s1).plusAll(s2);
       }
    }
    
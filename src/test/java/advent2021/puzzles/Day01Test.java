@@ -9,44 +9,99 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
-import io.reactivex.Observable;
+import advent2021.misc.MappedLineReader;
+import advent2021.misc.SlidingWindow;
+import io.reactivex.Flowable;
 
-public class Day01Test {
+public class Day01Test implements Puzzle<List<Integer>> {
+
+   @Override
+   public List<Integer> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(1, resourceName);
+      List<Integer> values = readValuesFromResources(resourceName, Integer::parseInt);
+      if (event.shouldCommit()) {
+         event.records(values.size()).commit();
+      }
+      return values;
+   }
+
+   @Override
+   public List<Integer> freeze(List<Integer> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Long solvePart1(List<Integer> values) {
+      SolveEvent event = SolveEvent.begin(1, 1);
+      long count = Flowable.fromIterable(values)
+         .compose(SlidingWindow.windowIncreases(2))
+         .reduce(0L, Long::sum)
+         .blockingGet();
+      if (event.shouldCommit()) {
+         event.iterations(values.size()).commit();
+      }
+      return count;
+   }
+
+   @Override
+   public Long solvePart2(List<Integer> values) {
+      SolveEvent event = SolveEvent.begin(1, 2);
+      long count = Flowable.fromIterable(values)
+         .compose(SlidingWindow.windowSums(3))
+         .compose(SlidingWindow.windowIncreases(2))
+         .reduce(0L, Long::sum)
+         .blockingGet();
+      if (event.shouldCommit()) {
+         event.iterations(values.size()).commit();
+      }
+      return count;
+   }
 
    @Test
    void part1() throws IOException {
 
-      var values = readValuesFromResources("/day01.txt", Integer::parseInt);
+      var values = load("/day01.txt");
 
-      assertThat(countIncreasedValues(values), is(1482L));
+      assertThat(solvePart1(values), is(1482L));
    }
 
    @Test
    void part2() throws IOException {
 
-      var values = readValuesFromResources("/day01.txt", Integer::parseInt);
+      var values = load("/day01.txt");
 
-      assertThat(countIncreasedValues(sumWithSlidingWindowOf3(values)), is(1518L));
+      assertThat(solvePart2(values), is(1518L));
    }
 
-   private Long countIncreasedValues(List<Integer> l) {
+   @Test
+   void sampleAndShortInputs() throws IOException {
 
-      return Observable.fromIterable(l)
-         .buffer(2, 1)
-         .filter(b -> b.size() > 1)
-         .map(b -> b.get(1) > b.get(0))
-         .filter(b -> b)
-         .count()
-         .blockingGet();
+      var values = load("/day01-sample.txt");
+
+      assertThat(solvePart1(values), is(7L));
+      assertThat(solvePart2(values), is(5L));
+      assertThat(solvePart1(List.of(1)), is(0L));
+      assertThat(solvePart2(List.of(1, 2, 3)), is(0L));
    }
 
-   private List<Integer> sumWithSlidingWindowOf3(List<Integer> l) {
+   @Test
+   void part1WithMappedInput() throws IOException {
 
-      return Observable.fromIterable(l)
-         .buffer(3, 1)
-         .filter(b -> b.size() == 3)
-         .map(b -> b.get(0) + b.get(1) + b.get(2))
-         .toList()
-         .blockingGet();
+      long count = 0;
+
+      try (var reader = MappedLineReader.openResource("/day01.txt")) {
+
+         var values = reader.longIterator();
+         long previous = values.nextLong();
+         while (values.hasNext()) {
+            long current = values.nextLong();
+            if (current > previous) {
+               count++;
+            }
+            previous = current;
+         }
+      }
+
+      assertThat(count, is(1482L));
    }
 }
@@ -5,12 +5,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.junit.jupiter.api.Test;
 
 import io.reactivex.Observable;
 
-public class Day02Test {
+public class Day02Test implements Puzzle<List<Day02Test.Command>> {
 
    enum Direction {
 
@@ -57,29 +61,162 @@ public class Day02Test {
       }
    }
 
-   @Test
-   void part1() throws IOException {
+   record Move(long forward, long aim, long depth) {
+
+      private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+      Move then(Move next) {
+         return new Move(forward + next.forward, aim + next.aim, depth + next.depth + aim * next.forward);
+      }
+
+      long simpleProduct() {
+         return forward * aim;
+      }
+
+      long withAimProduct() {
+         return forward * depth;
+      }
+
+      static Move of(List<Command> commands, int from, int to) {
+
+         long forward = 0;
+         long aim = 0;
+         long depth = 0;
+
+         for (int i = from; i < to; i++) {
+
+            Command command = commands.get(i);
+            switch (command.direction) {
+               case Down -> aim += command.magnitude;
+               case Up -> aim -= command.magnitude;
+               case Forward -> {
+                  forward += command.magnitude;
+                  depth += aim * command.magnitude;
+               }
+            }
+         }
+         return new Move(forward, aim, depth);
+      }
+
+      static Move reduce(List<Command> commands) {
+         return ForkJoinPool.commonPool().invoke(new MoveTask(commands, 0, commands.size()));
+      }
+
+      private static class MoveTask extends RecursiveTask<Move> {
+
+         private final List<Command> commands;
+         private final int from;
+         private final int to;
+
+         MoveTask(List<Command> commands, int from, int to) {
+            this.commands = commands;
+            this.from = from;
+            this.to = to;
+         }
+
+         @Override
+         protected Move compute() {
+
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+               return Move.of(commands, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            MoveTask first = new MoveTask(commands, from, middle);
+            first.fork();
+            Move second = new MoveTask(commands, middle, to).compute();
+            return first.join().then(second);
+         }
+      }
+   }
+
+   @Override
+   public List<Command> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(2, resourceName);
+      List<Command> commands = readValuesFromResources(resourceName, Command::parse);
+      if (event.shouldCommit()) {
+         event.records(commands.size()).commit();
+      }
+      return commands;
+   }
+
+   @Override
+   public List<Command> freeze(List<Command> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Integer solvePart1(List<Command> commands) {
+
+      SolveEvent event = SolveEvent.begin(2, 1);
 
-      var commands = readValuesFromResources("/day02.txt", Command::parse);
-      
       var finalPos = Observable
          .fromIterable(commands)
          .reduce(new Position(0, 0, 0), Position::applySimple)
          .blockingGet();
 
-      assertThat(finalPos.x * finalPos.depth, is(1694130));
+      if (event.shouldCommit()) {
+         event.iterations(commands.size()).commit();
+      }
+      return finalPos.x * finalPos.depth;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public Integer solvePart2(List<Command> commands) {
+
+      SolveEvent event = SolveEvent.begin(2, 2);
 
-      var commands = readValuesFromResources("/day02.txt", Command::parse);
-      
       var finalPos = Observable
          .fromIterable(commands)
          .reduce(new Position(0, 0, 0), Position::applyWithAim)
          .blockingGet();
-      
-      assertThat(finalPos.x * finalPos.depth, is(1698850445));
+
+      if (event.shouldCommit()) {
+         event.iterations(commands.size()).commit();
+      }
+      return finalPos.x * finalPos.depth;
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      var commands = load("/day02.txt");
+
+      assertThat(solvePart1(commands), is(1694130));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      var commands = load("/day02.txt");
+
+      assertThat(solvePart2(commands), is(1698850445));
+   }
+
+   @Test
+   void part1WithComposedMoves() throws IOException {
+
+      var commands = load("/day02.txt");
+
+      assertThat(Move.reduce(commands).simpleProduct(), is(1694130L));
+   }
+
+   @Test
+   void part2WithComposedMoves() throws IOException {
+
+      var commands = load("/day02.txt");
+
+      assertThat(Move.reduce(commands).withAimProduct(), is(1698850445L));
+      assertThat(Move.of(commands, 0, 500).then(Move.of(commands, 500, commands.size())), is(Move.of(commands, 0, commands.size())));
+   }
+
+   @Test
+   void composedMovesOnGeneratedInput() throws IOException {
+
+      StringWriter out = new StringWriter();
+      InputGenerators.commands(100_000, 2021, out);
+      List<Command> commands = out.toString().lines().map(Command::parse).toList();
+
+      assertThat(Move.reduce(commands), is(Move.of(commands, 0, commands.size())));
    }
 }
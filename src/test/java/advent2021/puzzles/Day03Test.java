@@ -5,16 +5,25 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import advent2021.misc.MappedLineReader;
 import io.reactivex.Observable;
-import io.reactivex.functions.BiFunction;
 import io.reactivex.functions.Predicate;
 
-public class Day03Test {
+public class Day03Test implements Puzzle<List<String>> {
 
    record Aggregator(int width, int[] countOfBitSetTo1, int[] countOfBitSetTo0) {
 
@@ -38,32 +47,265 @@ public class Day03Test {
       }
    }
 
-   @Test
-   void part1() throws IOException {
+   static class PackedDiagnostics {
+
+      private static final int COUNTER_SLICES = 16;
+      private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+      private final int width;
+      private final int wordsPerRecord;
+      private final int recordCount;
+      private final long[] words;
+
+      private PackedDiagnostics(int width, int recordCount, long[] words) {
+         this.width = width;
+         this.wordsPerRecord = (width + 63) >>> 6;
+         this.recordCount = recordCount;
+         this.words = words;
+      }
+
+      static PackedDiagnostics read(MappedLineReader reader) throws IOException {
+
+         int width = -1;
+         int recordCount = 0;
+         long[] words = new long[1024];
+
+         while (reader.nextLine()) {
+
+            if (reader.isBlank()) {
+               continue;
+            }
+
+            if (width < 0) {
+               width = reader.length();
+            } else if (reader.length() != width) {
+               throw new IllegalArgumentException("Expected a record of " + width + " bits but got " + reader.length());
+            }
+
+            int wordsPerRecord = (width + 63) >>> 6;
+            int offset = recordCount * wordsPerRecord;
+            if (offset + wordsPerRecord > words.length) {
+               words = Arrays.copyOf(words, Math.max(words.length * 2, offset + wordsPerRecord));
+            }
+
+            for (int column = 0; column < width; column++) {
+               if (reader.byteAt(column) == '1') {
+                  words[offset + (column >>> 6)] |= 1L << column;
+               }
+            }
+            recordCount++;
+         }
+
+         return new PackedDiagnostics(Math.max(width, 0), recordCount, words);
+      }
+
+      boolean isSet(int record, int column) {
+         return (words[record * wordsPerRecord + (column >>> 6)] & (1L << column)) != 0;
+      }
+
+      BigInteger valueOf(int record) {
+
+         BigInteger value = BigInteger.ZERO;
+         for (int column = 0; column < width; column++) {
+            if (isSet(record, column)) {
+               value = value.setBit(width - 1 - column);
+            }
+         }
+         return value;
+      }
+
+      long[] countBitsSetTo1() {
+         return ForkJoinPool.commonPool().invoke(new CountTask(0, recordCount));
+      }
+
+      private class CountTask extends RecursiveTask<long[]> {
+
+         private final int from;
+         private final int to;
+
+         CountTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+         }
+
+         @Override
+         protected long[] compute() {
+
+            if (to - from <= PARALLEL_THRESHOLD) {
+               return countBitsSetTo1(from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            CountTask lower = new CountTask(from, middle);
+            lower.fork();
+            long[] counts = new CountTask(middle, to).compute();
+            long[] lowerCounts = lower.join();
+            for (int i = 0; i < counts.length; i++) {
+               counts[i] += lowerCounts[i];
+            }
+            return counts;
+         }
+      }
+
+      long[] countBitsSetTo1(int from, int to) {
+
+         long[] counts = new long[width];
+         long[] slices = new long[wordsPerRecord * COUNTER_SLICES];
+
+         int pending = 0;
+         for (int record = from; record < to; record++) {
+
+            for (int w = 0; w < wordsPerRecord; w++) {
+               long carry = words[record * wordsPerRecord + w];
+               for (int k = w * COUNTER_SLICES; carry != 0; k++) {
+                  long sum = slices[k] ^ carry;
+                  carry &= slices[k];
+                  slices[k] = sum;
+               }
+            }
+
+            if (++pending == (1 << COUNTER_SLICES) - 1) {
+               flush(slices, counts);
+               pending = 0;
+            }
+         }
+         flush(slices, counts);
+
+         return counts;
+      }
+
+      private void flush(long[] slices, long[] counts) {
+
+         for (int w = 0; w < wordsPerRecord; w++) {
+            for (int k = 0; k < COUNTER_SLICES; k++) {
+               long slice = slices[w * COUNTER_SLICES + k];
+               while (slice != 0) {
+                  counts[(w << 6) + Long.numberOfTrailingZeros(slice)] += 1L << k;
+                  slice &= slice - 1;
+               }
+               slices[w * COUNTER_SLICES + k] = 0;
+            }
+         }
+      }
+
+      BigInteger powerConsumption() {
+
+         long[] counts = countBitsSetTo1();
+
+         BigInteger gammaRate = BigInteger.ZERO;
+         for (int column = 0; column < width; column++) {
+            if (counts[column] > recordCount - counts[column]) {
+               gammaRate = gammaRate.setBit(width - 1 - column);
+            }
+         }
+         BigInteger epsilonRate = gammaRate.xor(BigInteger.ONE.shiftLeft(width).subtract(BigInteger.ONE));
 
-      var records = readValuesFromResources("/day03.txt", s -> s);
+         return gammaRate.multiply(epsilonRate);
+      }
+
+      BigInteger lifeSupportRating() {
+         return valueOf(findRecord(true)).multiply(valueOf(findRecord(false)));
+      }
+
+      private int findRecord(boolean keepMostCommon) {
+
+         int[] candidates = new int[recordCount];
+         for (int i = 0; i < recordCount; i++) {
+            candidates[i] = i;
+         }
+
+         int candidateCount = recordCount;
+         for (int column = 0; column < width && candidateCount > 1; column++) {
+
+            int setTo1 = 0;
+            for (int i = 0; i < candidateCount; i++) {
+               if (isSet(candidates[i], column)) {
+                  setTo1++;
+               }
+            }
+
+            if (setTo1 == 0 || setTo1 == candidateCount) {
+               continue;
+            }
+
+            boolean mostCommonIs1 = setTo1 >= candidateCount - setTo1;
+            boolean kept = keepMostCommon == mostCommonIs1;
+
+            int keptCount = 0;
+            for (int i = 0; i < candidateCount; i++) {
+               if (isSet(candidates[i], column) == kept) {
+                  candidates[keptCount++] = candidates[i];
+               }
+            }
+            candidateCount = keptCount;
+         }
+         return candidates[0];
+      }
+   }
+
+   @Override
+   public List<String> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(3, resourceName);
+      List<String> records = readValuesFromResources(resourceName, s -> s);
+      if (event.shouldCommit()) {
+         event.records(records.size()).grid(records.isEmpty() ? 0 : records.get(0).length(), records.size()).commit();
+      }
+      return records;
+   }
+
+   @Override
+   public List<String> freeze(List<String> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Integer solvePart1(List<String> records) {
 
-      var powerConsumption = Observable
+      SolveEvent event = SolveEvent.begin(3, 1);
+
+      int result = Observable
             .fromIterable(records)
             .reduce(new Aggregator(), Aggregator::aggregate)
             .map(a-> gammaRate(a) * epsilonRate(a))
             .blockingGet();
 
-      assertThat(powerConsumption, is(3882564));
+      if (event.shouldCommit()) {
+         event.iterations(records.size()).commit();
+      }
+      return result;
    }
 
-   @Test
-   void part2() throws Exception {
+   @Override
+   public Integer solvePart2(List<String> records) {
 
-      var records = readValuesFromResources("/day03.txt", s -> s);
+      SolveEvent event = SolveEvent.begin(3, 2);
 
       var oxygenRecord = findRecord(records, this::keepForOxygen);
       var co2Record = findRecord(records, this::keepForCO2);
 
-      assertThat(binaryStringToInt(oxygenRecord) * binaryStringToInt(co2Record), is(3385170));
+      if (event.shouldCommit()) {
+         event.iterations(records.size()).commit();
+      }
+      return binaryStringToInt(oxygenRecord) * binaryStringToInt(co2Record);
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      var records = load("/day03.txt");
+
+      assertThat(solvePart1(records), is(3882564));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      var records = load("/day03.txt");
+
+      assertThat(solvePart2(records), is(3385170));
    }
 
-   private String findRecord(List<String> records, BiFunction<Aggregator, Integer, Predicate<String>> predicateProvider) throws Exception {
+   private String findRecord(List<String> records, BiFunction<Aggregator, Integer, Predicate<String>> predicateProvider) {
 
       var filteredRecords = Collections.unmodifiableList(records);
 
@@ -97,7 +339,9 @@ public class Day03Test {
 
    private Predicate<String> keepForCO2(Aggregator aggr, int bitIndex) {
 
-      if (aggr.countOfBitSetTo0[bitIndex] == aggr.countOfBitSetTo1[bitIndex]) {
+      if (aggr.countOfBitSetTo0[bitIndex] == 0 || aggr.countOfBitSetTo1[bitIndex] == 0) {
+         return r -> true;
+      } else if (aggr.countOfBitSetTo0[bitIndex] == aggr.countOfBitSetTo1[bitIndex]) {
          return r -> hasBitMatching(bitIndex, 0, r);
       } else {
          return r -> hasBitMatching(bitIndex, leastCommonBit(aggr, bitIndex), r);
@@ -142,4 +386,50 @@ public class Day03Test {
       }
       return value;
    }
+
+   @Test
+   void part1WithPackedDiagnostics() throws IOException {
+
+      try (var reader = MappedLineReader.openResource("/day03.txt")) {
+         assertThat(PackedDiagnostics.read(reader).powerConsumption(), is(BigInteger.valueOf(3882564L)));
+      }
+   }
+
+   @Test
+   void part2WithPackedDiagnostics() throws IOException {
+
+      try (var reader = MappedLineReader.openResource("/day03.txt")) {
+         assertThat(PackedDiagnostics.read(reader).lifeSupportRating(), is(BigInteger.valueOf(3385170L)));
+      }
+   }
+
+   @Test
+   void packedDiagnosticsOnWideRecords(@TempDir Path dir) throws IOException {
+
+      Path input = dir.resolve("day03-wide.txt");
+      try (Writer out = Files.newBufferedWriter(input)) {
+         InputGenerators.diagnostics(5_000, 100, 2021, out);
+      }
+      List<String> records = Files.readAllLines(input);
+
+      Aggregator aggregator = records.stream().reduce(new Aggregator(), Aggregator::aggregate, (a1, a2) -> a1);
+      StringBuilder gammaRate = new StringBuilder();
+      StringBuilder epsilonRate = new StringBuilder();
+      for (int i = 0; i < aggregator.width(); i++) {
+         gammaRate.append(mostCommonBit(aggregator, i));
+         epsilonRate.append(leastCommonBit(aggregator, i));
+      }
+
+      BigInteger powerConsumption = new BigInteger(gammaRate.toString(), 2).multiply(new BigInteger(epsilonRate.toString(), 2));
+      BigInteger lifeSupportRating = new BigInteger(findRecord(records, this::keepForOxygen), 2)
+            .multiply(new BigInteger(findRecord(records, this::keepForCO2), 2));
+
+      try (var reader = MappedLineReader.open(input)) {
+
+         PackedDiagnostics diagnostics = PackedDiagnostics.read(reader);
+
+         assertThat(diagnostics.powerConsumption(), is(powerConsumption));
+         assertThat(diagnostics.lifeSupportRating(), is(lifeSupportRating));
+      }
+   }
 }
@@ -3,9 +3,11 @@ package advent2021.puzzles;
 import static advent2021.misc.Utils.readValuesFromResources;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
@@ -14,9 +16,10 @@ import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
+import advent2021.misc.IntTokenizer;
 import advent2021.misc.Utils;
 
-public class Day04Test {
+public class Day04Test implements Puzzle<Day04Test.Game> {
 
    static class Game {
 
@@ -26,9 +29,10 @@ public class Day04Test {
       static Game parse(int size, List<String> lines) {
 
          Game game = new Game();
-         game.numbers = Utils.split(lines.get(0), ",", Integer::parseInt);
+         game.numbers = IntStream.of(Utils.splitToIntArray(lines.get(0), ",")).boxed().toList();
 
          Board board = null;
+         int[] row = new int[size];
 
          for (String line : lines.subList(1, lines.size())) {
 
@@ -37,7 +41,7 @@ public class Day04Test {
                if (board == null) {
                   board = game.addBoard(size);
                }
-               board.addRow(Utils.split(line, " ", Integer::parseInt));
+               board.addRow(row, IntTokenizer.SPACES.parseInts(line, row));
 
             } else {
                board = null;
@@ -47,6 +51,22 @@ public class Day04Test {
          return game;
       }
 
+      Game copy() {
+
+         Game game = new Game();
+         game.numbers = numbers;
+         boards.forEach(b -> game.boards.add(b.copy()));
+         return game;
+      }
+
+      Game freeze() {
+
+         Game game = new Game();
+         game.numbers = List.copyOf(numbers);
+         game.boards = boards.stream().map(Board::freeze).toList();
+         return game;
+      }
+
       Board addBoard(int size) {
 
          Board b = new Board(size);
@@ -104,21 +124,50 @@ public class Day04Test {
 
    static class Board {
 
-      private final ArrayList<Integer> values = new ArrayList<>();
-      private final BitSet markedPositions = new BitSet();
+      private final List<Integer> values;
+      private final BitSet markedPositions;
 
       private final int size;
 
       public Board(int size) {
+         this(size, new ArrayList<>(), new BitSet());
+      }
+
+      private Board(int size, List<Integer> values, BitSet markedPositions) {
          this.size = size;
+         this.values = values;
+         this.markedPositions = markedPositions;
       }
 
-      void addRow(List<Integer> values) {
-         this.values.addAll(values);
+      void addRow(int[] values, int count) {
+
+         checkNotFrozen();
+         for (int i = 0; i < count; i++) {
+            this.values.add(values[i]);
+         }
+      }
+
+      Board copy() {
+         return new Board(size, new ArrayList<>(values), markedPositions == null ? new BitSet() : (BitSet) markedPositions.clone());
+      }
+
+      Board freeze() {
+         return new Board(size, List.copyOf(values), null);
+      }
+
+      private void checkNotFrozen() {
+
+         if (markedPositions == null) {
+            throw new IllegalStateException("Board is frozen, only a copy of it can be marked");
+         }
+      }
+
+      private boolean isMarked(int position) {
+         return markedPositions != null && markedPositions.get(position);
       }
 
       boolean isNotMarked(int row, int col) {
-         return !markedPositions.get(row * size + col);
+         return !isMarked(row * size + col);
       }
 
       boolean isRowFullyMarked(int row) {
@@ -140,13 +189,14 @@ public class Day04Test {
       List<Integer> getUnmarkedValues() {
 
          return IntStream.range(0, values.size())
-               .filter(i -> !markedPositions.get(i))
+               .filter(i -> !isMarked(i))
                .mapToObj(values::get)
                .collect(Collectors.toList());
       }
 
       void markValueIfPresent(int value) {
 
+         checkNotFrozen();
          IntStream.range(0, values.size())
             .filter(i -> values.get(i) == value)
             .forEach(markedPositions::set);
@@ -156,21 +206,238 @@ public class Day04Test {
    record WinningBoardInfo (Board winningBoard, int lastMarkedNumber) {
    }
 
+   record BingoWin (int board, int lastMarkedNumber, long score) {
+   }
+
+   static class BingoEngine {
+
+      private final int cellsPerBoard;
+      private final int boardCount;
+      private final int[] values;
+      private final long[] rowMasks;
+      private final long[] colMasks;
+      private final int[] postingOffsets;
+      private final int[] postings;
+
+      BingoEngine(Game game, int size) {
+
+         if (size * size > Long.SIZE) {
+            throw new IllegalArgumentException("Boards larger than 8x8 are not supported: " + size);
+         }
+
+         this.cellsPerBoard = size * size;
+         this.boardCount = game.boards.size();
+         this.values = new int[boardCount * cellsPerBoard];
+
+         int maxValue = 0;
+         for (int b = 0; b < boardCount; b++) {
+            List<Integer> boardValues = game.boards.get(b).values;
+            for (int c = 0; c < cellsPerBoard; c++) {
+               int value = boardValues.get(c);
+               if (value < 0) {
+                  throw new IllegalArgumentException("Board " + b + " has a negative value: " + value);
+               }
+               values[b * cellsPerBoard + c] = value;
+               maxValue = Math.max(maxValue, value);
+            }
+         }
+
+         this.rowMasks = new long[size];
+         this.colMasks = new long[size];
+         for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+               rowMasks[row] |= 1L << (row * size + col);
+               colMasks[col] |= 1L << (row * size + col);
+            }
+         }
+
+         this.postingOffsets = new int[maxValue + 2];
+         for (int value : values) {
+            postingOffsets[value + 1]++;
+         }
+         for (int i = 0; i <= maxValue; i++) {
+            postingOffsets[i + 1] += postingOffsets[i];
+         }
+
+         this.postings = new int[values.length];
+         int[] next = Arrays.copyOf(postingOffsets, maxValue + 1);
+         for (int cell = 0; cell < values.length; cell++) {
+            postings[next[values[cell]]++] = cell;
+         }
+      }
+
+      List<BingoWin> play(List<Integer> numbers) {
+
+         int size = rowMasks.length;
+
+         long[] marks = new long[boardCount];
+         long[] unmarkedSums = new long[boardCount];
+         BitSet wonBoards = new BitSet(boardCount);
+
+         for (int cell = 0; cell < values.length; cell++) {
+            unmarkedSums[cell / cellsPerBoard] += values[cell];
+         }
+
+         List<BingoWin> result = new ArrayList<>();
+         for (int i = 0; i < numbers.size() && result.size() < boardCount; i++) {
+
+            int number = numbers.get(i);
+            if (number < 0 || number >= postingOffsets.length - 1) {
+               continue;
+            }
+
+            for (int p = postingOffsets[number]; p < postingOffsets[number + 1]; p++) {
+
+               int board = postings[p] / cellsPerBoard;
+               int cell = postings[p] % cellsPerBoard;
+
+               if (!wonBoards.get(board) && (marks[board] & (1L << cell)) == 0) {
+                  marks[board] |= 1L << cell;
+                  unmarkedSums[board] -= number;
+               }
+            }
+
+            for (int p = postingOffsets[number]; p < postingOffsets[number + 1]; p++) {
+
+               int board = postings[p] / cellsPerBoard;
+               int cell = postings[p] % cellsPerBoard;
+
+               long rowMask = rowMasks[cell / size];
+               long colMask = colMasks[cell % size];
+               if (!wonBoards.get(board) && ((marks[board] & rowMask) == rowMask || (marks[board] & colMask) == colMask)) {
+                  wonBoards.set(board);
+                  result.add(new BingoWin(board, number, unmarkedSums[board] * number));
+               }
+            }
+         }
+         return result;
+      }
+   }
+
+   @Override
+   public Game parse(String resourceName) throws IOException {
+
+      ParseEvent event = ParseEvent.begin(4, resourceName);
+
+      var lines = readValuesFromResources(resourceName);
+      Game game = Game.parse(5, lines);
+
+      if (event.shouldCommit()) {
+         event.records(game.boards.size()).grid(5, 5).commit();
+      }
+      return game;
+   }
+
+   @Override
+   public Game freeze(Game game) {
+      return game.freeze();
+   }
+
+   @Override
+   public Integer solvePart1(Game game) {
+      SolveEvent event = SolveEvent.begin(4, 1);
+      int score = game.copy().playWithPart1Rules();
+      if (event.shouldCommit()) {
+         event.iterations(game.numbers.size()).grid(5, 5).commit();
+      }
+      return score;
+   }
+
+   @Override
+   public Integer solvePart2(Game game) {
+      SolveEvent event = SolveEvent.begin(4, 2);
+      int score = game.copy().playWithPart2Rules();
+      if (event.shouldCommit()) {
+         event.iterations(game.numbers.size()).grid(5, 5).commit();
+      }
+      return score;
+   }
+
    @Test
    void part1() throws IOException {
 
-      var lines = readValuesFromResources("/day04.txt");
-      var game = Game.parse(5, lines);
+      var game = load("/day04.txt");
 
-      assertThat(game.playWithPart1Rules(), is(63552));
+      assertThat(solvePart1(game), is(63552));
    }
 
    @Test
    void part2() throws IOException {
 
-      var lines = readValuesFromResources("/day04.txt");
-      var game = Game.parse(5, lines);
+      var game = load("/day04.txt");
+
+      assertThat(solvePart2(game), is(9020));
+   }
+
+   @Test
+   void part1WithBingoEngine() throws IOException {
+
+      var game = load("/day04.txt");
+
+      List<BingoWin> wins = new BingoEngine(game, 5).play(game.numbers);
+
+      assertThat(wins.get(0).score(), is(63552L));
+   }
+
+   @Test
+   void part2WithBingoEngine() throws IOException {
+
+      var game = load("/day04.txt");
 
-      assertThat(game.playWithPart2Rules(), is(9020));
+      List<BingoWin> wins = new BingoEngine(game, 5).play(game.numbers);
+
+      assertThat(wins.get(wins.size() - 1).score(), is(9020L));
+   }
+
+   @Test
+   void cachedGameCannotBeMarked() throws IOException {
+
+      var game = load("/day04.txt");
+
+      assertThrows(IllegalStateException.class, game::playWithPart1Rules);
+      assertThrows(IllegalStateException.class, () -> game.boards.get(0).markValueIfPresent(game.numbers.get(0)));
+      assertThrows(UnsupportedOperationException.class, () -> game.boards.add(new Board(5)));
+
+      assertThat(solvePart1(game), is(63552));
+      assertThat(solvePart2(game), is(9020));
+   }
+
+   @Test
+   void bingoEngineMarksEveryOccurrenceBeforeCheckingWins() {
+
+      var game = Game.parse(5, List.of(
+            "1,2,3,4,7,10,11,12,13",
+            "",
+            " 1  2  3  4  7",
+            " 7 10 11 12 13",
+            "14 15 16 17 18",
+            "19 20 21 22 23",
+            "24 25 26 27 28",
+            "",
+            "10  1 30 31 32",
+            "11 33 34 35 36",
+            "12 37 38 39 40",
+            "13 41 42 43 44",
+            " 7 45 46 47 48"));
+
+      List<BingoWin> wins = new BingoEngine(game, 5).play(game.numbers);
+
+      assertThat(wins.get(0).score(), is((long) game.copy().playWithPart1Rules()));
+      assertThat(wins.get(wins.size() - 1).score(), is((long) game.copy().playWithPart2Rules()));
+   }
+
+   @Test
+   void bingoEngineRejectsNegativeValues() {
+
+      var game = Game.parse(5, List.of(
+            "1,2,3",
+            "",
+            " 1  2  3  4 -5",
+            " 6  7  8  9 10",
+            "11 12 13 14 15",
+            "16 17 18 19 20",
+            "21 22 23 24 25"));
+
+      assertThrows(IllegalArgumentException.class, () -> new BingoEngine(game, 5));
    }
 }
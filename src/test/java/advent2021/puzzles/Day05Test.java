@@ -7,9 +7,12 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,7 +20,7 @@ import advent2021.misc.Point;
 import advent2021.misc.Vector;
 import org.junit.jupiter.api.Test;
 
-public class Day05Test {
+public class Day05Test implements Puzzle<List<Vector>> {
 
    static Vector parseVector(String s) {
 
@@ -83,12 +86,165 @@ public class Day05Test {
       }
    }
 
+   static class Raster {
+
+      private static final int STRIPE_HEIGHT = 64;
+
+      private final List<Vector> vectors;
+      private final int minX;
+      private final int minY;
+      private final int width;
+      private final int height;
+
+      Raster(List<Vector> vectors, boolean followDiagonals) {
+
+         this.vectors = vectors.stream()
+               .filter(v -> followDiagonals || v.isVertical() || v.isHorizontal())
+               .toList();
+
+         int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+         for (Vector v : this.vectors) {
+            x0 = min(x0, min(v.from().x(), v.to().x()));
+            y0 = min(y0, min(v.from().y(), v.to().y()));
+            x1 = max(x1, max(v.from().x(), v.to().x()));
+            y1 = max(y1, max(v.from().y(), v.to().y()));
+         }
+
+         this.minX = x0;
+         this.minY = y0;
+         this.width = this.vectors.isEmpty() ? 0 : x1 - x0 + 1;
+         this.height = this.vectors.isEmpty() ? 0 : y1 - y0 + 1;
+      }
+
+      long countOverlaps() {
+         return height == 0 ? 0 : ForkJoinPool.commonPool().invoke(new StripeTask(0, height));
+      }
+
+      private class StripeTask extends RecursiveTask<Long> {
+
+         private final int rowFrom;
+         private final int rowTo;
+
+         StripeTask(int rowFrom, int rowTo) {
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+         }
+
+         @Override
+         protected Long compute() {
+
+            if (rowTo - rowFrom <= STRIPE_HEIGHT) {
+               return countOverlapsInStripe(rowFrom, rowTo);
+            }
+
+            int middle = (rowFrom + rowTo) >>> 1;
+            StripeTask lower = new StripeTask(rowFrom, middle);
+            lower.fork();
+            long upperCount = new StripeTask(middle, rowTo).compute();
+            return upperCount + lower.join();
+         }
+      }
+
+      private long countOverlapsInStripe(int rowFrom, int rowTo) {
+
+         int wordsPerRow = (width + 63) >>> 6;
+         long[] seenOnce = new long[(rowTo - rowFrom) * wordsPerRow];
+         long[] seenTwice = new long[seenOnce.length];
+
+         for (Vector v : vectors) {
+
+            int fromX = v.from().x() - minX, fromY = v.from().y() - minY;
+            int toX = v.to().x() - minX, toY = v.to().y() - minY;
+
+            int stepX = Integer.signum(toX - fromX);
+            int stepY = Integer.signum(toY - fromY);
+
+            if (stepY == 0) {
+               if (fromY >= rowFrom && fromY < rowTo) {
+                  markRange(seenOnce, seenTwice, (fromY - rowFrom) * wordsPerRow, min(fromX, toX), max(fromX, toX));
+               }
+               continue;
+            }
+
+            int yStart = max(min(fromY, toY), rowFrom);
+            int yEnd = min(max(fromY, toY), rowTo - 1);
+
+            for (int y = yStart; y <= yEnd; y++) {
+               int x = fromX + (y - fromY) * stepY * stepX;
+               markRange(seenOnce, seenTwice, (y - rowFrom) * wordsPerRow, x, x);
+            }
+         }
+
+         long count = 0;
+         for (long word : seenTwice) {
+            count += Long.bitCount(word);
+         }
+         return count;
+      }
+
+      private static void markRange(long[] seenOnce, long[] seenTwice, int rowOffset, int xFrom, int xTo) {
+
+         int firstWord = xFrom >>> 6;
+         int lastWord = xTo >>> 6;
+
+         for (int w = firstWord; w <= lastWord; w++) {
+
+            long mask = -1L;
+            if (w == firstWord) {
+               mask &= -1L << (xFrom & 63);
+            }
+            if (w == lastWord) {
+               mask &= -1L >>> (63 - (xTo & 63));
+            }
+
+            int i = rowOffset + w;
+            seenTwice[i] |= seenOnce[i] & mask;
+            seenOnce[i] |= mask;
+         }
+      }
+   }
+
+   @Override
+   public List<Vector> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(5, resourceName);
+      List<Vector> vectors = readValuesFromResources(resourceName, Day05Test::parseVector);
+      if (event.shouldCommit()) {
+         event.records(vectors.size()).commit();
+      }
+      return vectors;
+   }
+
+   @Override
+   public List<Vector> freeze(List<Vector> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Long solvePart1(List<Vector> vectors) {
+      SolveEvent event = SolveEvent.begin(5, 1);
+      long count = getNumberOfPointsWithTwoOrMoreIntersections(vectors, false);
+      if (event.shouldCommit()) {
+         event.iterations(vectors.size()).commit();
+      }
+      return count;
+   }
+
+   @Override
+   public Long solvePart2(List<Vector> vectors) {
+      SolveEvent event = SolveEvent.begin(5, 2);
+      long count = getNumberOfPointsWithTwoOrMoreIntersections(vectors, true);
+      if (event.shouldCommit()) {
+         event.iterations(vectors.size()).commit();
+      }
+      return count;
+   }
+
    @Test
    void part1() throws IOException {
 
-      var vectors = readValuesFromResources("/day05.txt", Day05Test::parseVector);
+      var vectors = load("/day05.txt");
 
-      long count = getNumberOfPointsWithTwoOrMoreIntersections(vectors, false);
+      long count = solvePart1(vectors);
 
       assertThat(count, is(7318L));
    }
@@ -96,13 +252,42 @@ public class Day05Test {
    @Test
    void part2() throws IOException {
 
-      var vectors = readValuesFromResources("/day05.txt", Day05Test::parseVector);
+      var vectors = load("/day05.txt");
 
-      long count = getNumberOfPointsWithTwoOrMoreIntersections(vectors, true);
+      long count = solvePart2(vectors);
 
       assertThat(count, is(19939L));
    }
 
+   @Test
+   void part1WithRaster() throws IOException {
+
+      var vectors = load("/day05.txt");
+
+      assertThat(new Raster(vectors, false).countOverlaps(), is(7318L));
+   }
+
+   @Test
+   void part2WithRaster() throws IOException {
+
+      var vectors = load("/day05.txt");
+
+      assertThat(new Raster(vectors, true).countOverlaps(), is(19939L));
+   }
+
+   @Test
+   void rasterOnGeneratedInput() throws IOException {
+
+      StringWriter out = new StringWriter();
+      InputGenerators.forDay(5).generate(5_000, 2021, out);
+
+      List<Vector> vectors = out.toString().lines().map(Day05Test::parseVector).toList();
+
+      assertThat(vectors.size(), is(5_000));
+      assertThat(new Raster(vectors, false).countOverlaps(), is(getNumberOfPointsWithTwoOrMoreIntersections(vectors, false)));
+      assertThat(new Raster(vectors, true).countOverlaps(), is(getNumberOfPointsWithTwoOrMoreIntersections(vectors, true)));
+   }
+
    private long getNumberOfPointsWithTwoOrMoreIntersections(List<Vector> vectors, boolean followDiagonals) {
 
       Grid g = new Grid();
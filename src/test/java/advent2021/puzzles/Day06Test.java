@@ -2,23 +2,33 @@ package advent2021.puzzles;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.StringTokenizer;
 
 import org.junit.jupiter.api.Test;
 
+import advent2021.misc.IntTokenizer;
 import advent2021.misc.Utils;
 
-public class Day06Test {
+public class Day06Test implements Puzzle<Day06Test.SquidState> {
 
    public static class SquidState {
 
-      private final Map<Integer, Long> countPerAge = new HashMap<>();
+      private final Map<Integer, Long> countPerAge;
+
+      SquidState() {
+         this(new HashMap<>());
+      }
+
+      private SquidState(Map<Integer, Long> countPerAge) {
+         this.countPerAge = countPerAge;
+      }
 
       void addSquid(int squidAge) {
          countPerAge.merge(squidAge, 1L, Long::sum);
@@ -35,6 +45,222 @@ public class Day06Test {
       long getSquidCount() {
          return countPerAge.values().stream().reduce(Long::sum).orElse(0L);
       }
+
+      SquidState freeze() {
+         return new SquidState(Map.copyOf(countPerAge));
+      }
+   }
+
+   static class Population {
+
+      private final long[] countPerAge;
+      private final int ageAfterBirthForParent;
+      private final int ageAfterBirthForChild;
+      private int head;
+
+      Population(SquidState state, int ageAfterBirthForParent, int ageAfterBirthForChild) {
+
+         this.countPerAge = new long[Math.max(ageAfterBirthForParent, ageAfterBirthForChild) + 1];
+         this.ageAfterBirthForParent = ageAfterBirthForParent;
+         this.ageAfterBirthForChild = ageAfterBirthForChild;
+
+         for (Entry<Integer, Long> entry : state.getSquidAgeInfo()) {
+            countPerAge[entry.getKey()] += entry.getValue();
+         }
+      }
+
+      void nextDay() {
+
+         long births = countPerAge[head];
+         countPerAge[head] = 0;
+         head = (head + 1) % countPerAge.length;
+
+         countPerAge[(head + ageAfterBirthForParent) % countPerAge.length] += births;
+         countPerAge[(head + ageAfterBirthForChild) % countPerAge.length] += births;
+      }
+
+      long getSquidCount() {
+
+         long count = 0;
+         for (long c : countPerAge) {
+            count += c;
+         }
+         return count;
+      }
+   }
+
+   static class PopulationModel {
+
+      private interface Arithmetic {
+         long add(long a, long b);
+         long multiply(long a, long b);
+      }
+
+      private static final Arithmetic EXACT = new Arithmetic() {
+
+         @Override
+         public long add(long a, long b) {
+            return Math.addExact(a, b);
+         }
+
+         @Override
+         public long multiply(long a, long b) {
+            return Math.multiplyExact(a, b);
+         }
+      };
+
+      private final int ageCount;
+      private final int ageAfterBirthForParent;
+      private final int ageAfterBirthForChild;
+
+      PopulationModel(int ageAfterBirthForParent, int ageAfterBirthForChild) {
+         this.ageCount = Math.max(ageAfterBirthForParent, ageAfterBirthForChild) + 1;
+         this.ageAfterBirthForParent = ageAfterBirthForParent;
+         this.ageAfterBirthForChild = ageAfterBirthForChild;
+      }
+
+      long[][] transitionMatrix() {
+
+         long[][] matrix = new long[ageCount][ageCount];
+         for (int age = 1; age < ageCount; age++) {
+            matrix[age - 1][age] = 1;
+         }
+         matrix[ageAfterBirthForParent][0] += 1;
+         matrix[ageAfterBirthForChild][0] += 1;
+         return matrix;
+      }
+
+      long countAfter(SquidState state, long days) {
+         return countAfter(state, days, EXACT);
+      }
+
+      long countAfterModulo(SquidState state, long days, long modulus) {
+
+         if (modulus <= 0 || modulus > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Modulus must be in ]0, 2^31[: " + modulus);
+         }
+
+         return countAfter(state, days, new Arithmetic() {
+
+            @Override
+            public long add(long a, long b) {
+               return (a + b) % modulus;
+            }
+
+            @Override
+            public long multiply(long a, long b) {
+               return (a % modulus) * (b % modulus) % modulus;
+            }
+         });
+      }
+
+      private long countAfter(SquidState state, long days, Arithmetic arithmetic) {
+
+         long[][] power = power(transitionMatrix(), days, arithmetic);
+
+         long count = 0;
+         for (Entry<Integer, Long> entry : state.getSquidAgeInfo()) {
+            for (int age = 0; age < ageCount; age++) {
+               count = arithmetic.add(count, arithmetic.multiply(power[age][entry.getKey()], entry.getValue()));
+            }
+         }
+         return count;
+      }
+
+      private long[][] power(long[][] matrix, long exponent, Arithmetic arithmetic) {
+
+         long[][] result = new long[ageCount][ageCount];
+         for (int i = 0; i < ageCount; i++) {
+            result[i][i] = 1;
+         }
+
+         for (long e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+               result = multiply(result, matrix, arithmetic);
+            }
+            if (e > 1) {
+               matrix = multiply(matrix, matrix, arithmetic);
+            }
+         }
+         return result;
+      }
+
+      private long[][] multiply(long[][] m1, long[][] m2, Arithmetic arithmetic) {
+
+         long[][] result = new long[ageCount][ageCount];
+         for (int i = 0; i < ageCount; i++) {
+            for (int k = 0; k < ageCount; k++) {
+               if (m1[i][k] == 0) {
+                  continue;
+               }
+               for (int j = 0; j < ageCount; j++) {
+                  result[i][j] = arithmetic.add(result[i][j], arithmetic.multiply(m1[i][k], m2[k][j]));
+               }
+            }
+         }
+         return result;
+      }
+
+      BigInteger countAfterExactly(SquidState state, long days) {
+
+         BigInteger[][] power = power(toBigIntegers(transitionMatrix()), days);
+
+         BigInteger count = BigInteger.ZERO;
+         for (Entry<Integer, Long> entry : state.getSquidAgeInfo()) {
+            for (int age = 0; age < ageCount; age++) {
+               count = count.add(power[age][entry.getKey()].multiply(BigInteger.valueOf(entry.getValue())));
+            }
+         }
+         return count;
+      }
+
+      private BigInteger[][] toBigIntegers(long[][] matrix) {
+
+         BigInteger[][] result = new BigInteger[ageCount][ageCount];
+         for (int i = 0; i < ageCount; i++) {
+            for (int j = 0; j < ageCount; j++) {
+               result[i][j] = BigInteger.valueOf(matrix[i][j]);
+            }
+         }
+         return result;
+      }
+
+      private BigInteger[][] power(BigInteger[][] matrix, long exponent) {
+
+         BigInteger[][] result = new BigInteger[ageCount][ageCount];
+         for (int i = 0; i < ageCount; i++) {
+            for (int j = 0; j < ageCount; j++) {
+               result[i][j] = i == j ? BigInteger.ONE : BigInteger.ZERO;
+            }
+         }
+
+         for (long e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+               result = multiply(result, matrix);
+            }
+            if (e > 1) {
+               matrix = multiply(matrix, matrix);
+            }
+         }
+         return result;
+      }
+
+      private BigInteger[][] multiply(BigInteger[][] m1, BigInteger[][] m2) {
+
+         BigInteger[][] result = new BigInteger[ageCount][ageCount];
+         for (int i = 0; i < ageCount; i++) {
+            for (int j = 0; j < ageCount; j++) {
+               BigInteger sum = BigInteger.ZERO;
+               for (int k = 0; k < ageCount; k++) {
+                  if (m1[i][k].signum() != 0 && m2[k][j].signum() != 0) {
+                     sum = sum.add(m1[i][k].multiply(m2[k][j]));
+                  }
+               }
+               result[i][j] = sum;
+            }
+         }
+         return result;
+      }
    }
 
    private SquidState nextState(SquidState state, int ageAfterBirthForParent, int ageAfterBirthForChild) {
@@ -60,33 +286,112 @@ public class Day06Test {
 
       var state = new SquidState();
 
-      StringTokenizer tokenizer = new StringTokenizer(s, ", ");
-      while (tokenizer.hasMoreTokens()) {
-         state.addSquid((byte)Integer.parseInt(tokenizer.nextToken()));
-      }
+      new IntTokenizer(", ").forEachInt(s, state::addSquid);
       return state;
    }
 
-   private SquidState countSquidsAfterIteration(int iterationCount) throws IOException {
+   private SquidState countSquidsAfterIteration(SquidState initialState, int iterationCount) {
 
-      var state = readState(Utils.readValuesFromResources("/day06.txt").get(0));
+      var state = initialState;
       for (int i = 0; i < iterationCount; i++) {
          state = nextState(state, 6, 8);
       }
       return state;
    }
 
+   @Override
+   public SquidState parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(6, resourceName);
+      SquidState state = readState(Utils.readValuesFromResources(resourceName).get(0));
+      if (event.shouldCommit()) {
+         event.records(state.getSquidCount()).commit();
+      }
+      return state;
+   }
+
+   @Override
+   public SquidState freeze(SquidState state) {
+      return state.freeze();
+   }
+
+   @Override
+   public Long solvePart1(SquidState initialState) {
+      SolveEvent event = SolveEvent.begin(6, 1);
+      long count = countSquidsAfterIteration(initialState, 80).getSquidCount();
+      if (event.shouldCommit()) {
+         event.iterations(80).commit();
+      }
+      return count;
+   }
+
+   @Override
+   public Long solvePart2(SquidState initialState) {
+      SolveEvent event = SolveEvent.begin(6, 2);
+      long count = countSquidsAfterIteration(initialState, 256).getSquidCount();
+      if (event.shouldCommit()) {
+         event.iterations(256).commit();
+      }
+      return count;
+   }
+
    @Test
    void part1() throws IOException {
 
-      var state = countSquidsAfterIteration(80);
-      assertThat(state.getSquidCount(), is(390011L));
+      var state = load("/day06.txt");
+      assertThat(solvePart1(state), is(390011L));
    }
 
    @Test
    void part2() throws IOException {
 
-      var state = countSquidsAfterIteration(256);
-      assertThat(state.getSquidCount(), is(1746710169834L));
+      var state = load("/day06.txt");
+      assertThat(solvePart2(state), is(1746710169834L));
+   }
+
+   @Test
+   void part2WithRingBuffer() throws IOException {
+
+      var population = new Population(load("/day06.txt"), 6, 8);
+      for (int i = 0; i < 256; i++) {
+         population.nextDay();
+      }
+
+      assertThat(population.getSquidCount(), is(1746710169834L));
+   }
+
+   @Test
+   void part2WithMatrixPower() throws IOException {
+
+      var state = load("/day06.txt");
+      var model = new PopulationModel(6, 8);
+
+      assertThat(model.countAfter(state, 256), is(1746710169834L));
+      assertThat(model.countAfterExactly(state, 256), is(BigInteger.valueOf(1746710169834L)));
+      assertThat(model.countAfterModulo(state, 256, 1_000_000_007L), is(1746710169834L % 1_000_000_007L));
+   }
+
+   @Test
+   void populationAfterAMillionDays() throws IOException {
+
+      var state = load("/day06.txt");
+      var model = new PopulationModel(6, 8);
+
+      BigInteger count = model.countAfterExactly(state, 1_000_000);
+
+      assertThat(count.mod(BigInteger.valueOf(1_000_000_007L)).longValue(),
+            is(model.countAfterModulo(state, 1_000_000, 1_000_000_007L)));
+   }
+
+   @Test
+   void frozenStateIsAnImmutableCopy() {
+
+      var state = readState("3,4,3,1,2");
+      var frozen = state.freeze();
+
+      assertThrows(UnsupportedOperationException.class, () -> frozen.addSquid(1));
+      state.addSquid(1);
+
+      assertThat(state.getSquidCount(), is(6L));
+      assertThat(frozen.getSquidCount(), is(5L));
    }
 }
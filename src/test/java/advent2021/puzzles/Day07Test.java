@@ -3,48 +3,284 @@ package advent2021.puzzles;
 import static advent2021.misc.Utils.readSingleValueFromResources;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
 import advent2021.misc.Utils;
 
-public class Day07Test {
+public class Day07Test implements Puzzle<List<Integer>> {
 
-   @Test
-   void part1() throws IOException {
+   @Override
+   public List<Integer> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(7, resourceName);
+      List<Integer> positions = readSingleValueFromResources(resourceName, s -> IntStream.of(Utils.splitToIntArray(s, ",")).boxed().toList());
+      if (event.shouldCommit()) {
+         event.records(positions.size()).commit();
+      }
+      return positions;
+   }
 
-      List<Integer> positions = readSingleValueFromResources("/day07.txt",
-            s -> Utils.split(s, ",", Integer::parseInt));
+   @Override
+   public List<Integer> freeze(List<Integer> values) {
+      return List.copyOf(values);
+   }
 
-      Result r = align(positions, (from, to) -> Math.abs(to - from));
+   @Override
+   public Long solvePart1(List<Integer> positions) {
 
-      assertThat(r.cost, is(356992));
+      SolveEvent event = SolveEvent.begin(7, 1);
+      Result r = align(positions, (from, to) -> Math.abs(to - from));
+      if (event.shouldCommit()) {
+         event.iterations(positions.size()).commit();
+      }
+      return r.cost;
    }
 
-   @Test
-   void part2() throws IOException {
-
-      List<Integer> positions = readSingleValueFromResources("/day07.txt",
-            s -> Utils.split(s, ",", Integer::parseInt));
+   @Override
+   public Long solvePart2(List<Integer> positions) {
 
+      SolveEvent event = SolveEvent.begin(7, 2);
       Result r = align(positions, (from, to) -> {
-         var distance = Math.abs(to - from);
+         long distance = Math.abs((long) to - from);
          return distance * (distance + 1) / 2;
       });
+      if (event.shouldCommit()) {
+         event.iterations(positions.size()).commit();
+      }
+      return r.cost;
+   }
 
-      assertThat(r.cost, is(101268110));
+   @Test
+   void part1() throws IOException {
+
+      List<Integer> positions = load("/day07.txt");
+
+      assertThat(solvePart1(positions), is(356992L));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      List<Integer> positions = load("/day07.txt");
+
+      assertThat(solvePart2(positions), is(101268110L));
    }
 
-   record Result (int position, int cost) {}
+   record Result (int position, long cost) {}
 
    interface CostFunction {
-      int computeCostFromTo(int from, int to);
+      long computeCostFromTo(int from, int to);
+   }
+
+   record AlignmentResult(int position, long cost) {}
+
+   static class Aligner {
+
+      private final int minValue;
+      private final int[] distinctValues;
+      private final long[] distinctCounts;
+      private final long[] countPrefix;
+      private final long[] sumPrefix;
+
+      private final long count;
+      private final long sum;
+      private final long sumOfSquares;
+
+      Aligner(List<Integer> values) {
+
+         if (values.isEmpty()) {
+            throw new IllegalArgumentException("Cannot align an empty list of positions");
+         }
+
+         int min = Integer.MAX_VALUE;
+         int max = Integer.MIN_VALUE;
+         for (int value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+         }
+
+         this.minValue = min;
+
+         long[] histogram = new long[max - min + 1];
+         for (int value : values) {
+            histogram[value - min]++;
+         }
+
+         this.countPrefix = new long[histogram.length + 1];
+         this.sumPrefix = new long[histogram.length + 1];
+
+         int distinct = 0;
+         long squares = 0;
+         for (int i = 0; i < histogram.length; i++) {
+            countPrefix[i + 1] = countPrefix[i] + histogram[i];
+            sumPrefix[i + 1] = sumPrefix[i] + histogram[i] * i;
+            squares += histogram[i] * i * i;
+            if (histogram[i] != 0) {
+               distinct++;
+            }
+         }
+
+         this.distinctValues = new int[distinct];
+         this.distinctCounts = new long[distinct];
+         for (int i = 0, d = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+               distinctValues[d] = i + min;
+               distinctCounts[d++] = histogram[i];
+            }
+         }
+
+         this.count = countPrefix[histogram.length];
+         this.sum = sumPrefix[histogram.length];
+         this.sumOfSquares = squares;
+      }
+
+      private int range() {
+         return countPrefix.length - 1;
+      }
+
+      long linearCostAt(int position) {
+
+         long p = position - minValue;
+         int below = (int) Math.max(0, Math.min(p + 1, range()));
+
+         long countBelow = countPrefix[below];
+         long sumBelow = sumPrefix[below];
+
+         return (p * countBelow - sumBelow) + ((sum - sumBelow) - p * (count - countBelow));
+      }
+
+      long triangularCostAt(int position) {
+
+         long p = position - minValue;
+         long squaredDistances = sumOfSquares - 2 * p * sum + count * p * p;
+
+         return (squaredDistances + linearCostAt(position)) / 2;
+      }
+
+      long costAt(int position, CostFunction costFunction) {
+
+         long cost = 0;
+         for (int i = 0; i < distinctValues.length; i++) {
+            cost += costFunction.computeCostFromTo(distinctValues[i], position) * distinctCounts[i];
+         }
+         return cost;
+      }
+
+      AlignmentResult alignLinear() {
+
+         long rank = (count - 1) / 2;
+
+         int low = 0;
+         int high = range() - 1;
+         while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (countPrefix[middle + 1] > rank) {
+               high = middle;
+            } else {
+               low = middle + 1;
+            }
+         }
+
+         int median = low + minValue;
+         return new AlignmentResult(median, linearCostAt(median));
+      }
+
+      AlignmentResult alignTriangular() {
+
+         int mean = (int) Math.floorDiv(sum, count) + minValue;
+
+         AlignmentResult result = null;
+         for (int position = Math.max(mean - 1, minValue); position <= Math.min(mean + 2, minValue + range() - 1); position++) {
+            long cost = triangularCostAt(position);
+            if (result == null || cost < result.cost()) {
+               result = new AlignmentResult(position, cost);
+            }
+         }
+         return result;
+      }
+
+      AlignmentResult align(CostFunction convexCostFunction) {
+
+         int low = minValue;
+         int high = minValue + range() - 1;
+
+         while (high - low > 2) {
+
+            int m1 = low + (high - low) / 3;
+            int m2 = high - (high - low) / 3;
+
+            long cost1 = costAt(m1, convexCostFunction);
+            long cost2 = costAt(m2, convexCostFunction);
+
+            if (cost1 < cost2) {
+               high = m2 - 1;
+            } else if (cost1 > cost2) {
+               low = m1 + 1;
+            } else {
+               low = m1;
+               high = m2;
+            }
+         }
+
+         AlignmentResult result = null;
+         for (int position = low; position <= high; position++) {
+            long cost = costAt(position, convexCostFunction);
+            if (result == null || cost < result.cost()) {
+               result = new AlignmentResult(position, cost);
+            }
+         }
+         return result;
+      }
+   }
+
+   @Test
+   void part1WithAligner() throws IOException {
+
+      var aligner = new Aligner(load("/day07.txt"));
+
+      assertThat(aligner.alignLinear().cost(), is(356992L));
+      assertThat(aligner.align((from, to) -> Math.abs(to - from)).cost(), is(356992L));
+   }
+
+   @Test
+   void part2WithAligner() throws IOException {
+
+      var aligner = new Aligner(load("/day07.txt"));
+
+      assertThat(aligner.alignTriangular().cost(), is(101268110L));
+      assertThat(aligner.align((from, to) -> {
+         long distance = Math.abs((long) to - from);
+         return distance * (distance + 1) / 2;
+      }).cost(), is(101268110L));
+   }
+
+   @Test
+   void alignerOnWideRanges() {
+
+      List<Integer> positions = List.of(0, 3, 200_000, 1_000_000, 1_000_000);
+      var aligner = new Aligner(positions);
+
+      AlignmentResult triangular = aligner.alignTriangular();
+
+      assertThat(triangular.cost(), is(aligner.align((from, to) -> {
+         long distance = Math.abs((long) to - from);
+         return distance * (distance + 1) / 2;
+      }).cost()));
+      assertThat(triangular.cost(), is(solvePart2(positions)));
+      assertThat(aligner.alignLinear().cost(), is(solvePart1(positions)));
+   }
+
+   @Test
+   void alignerRejectsEmptyInput() {
+      assertThrows(IllegalArgumentException.class, () -> new Aligner(List.of()));
    }
 
    private Result align(List<Integer> values, CostFunction costFunction) {
@@ -63,7 +299,7 @@ public class Day07Test {
 
       for (int position = minValue; position <= maxValue; position++) {
 
-         int costToPosition = 0;
+         long costToPosition = 0;
 
          for (Entry<Integer, Integer> e: valuesOccurrences.entrySet()) {
             costToPosition += costFunction.computeCostFromTo(e.getKey(), position) * e.getValue();
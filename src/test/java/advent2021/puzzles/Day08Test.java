@@ -2,6 +2,7 @@ package advent2021.puzzles;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -18,9 +19,10 @@ import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
+import advent2021.misc.MappedLineReader;
 import advent2021.misc.Utils;
 
-public class Day08Test {
+public class Day08Test implements Puzzle<List<Day08Test.Sample>> {
 
    static record Sample (List<Set<Character>> patterns, List<Set<Character>> outputs) {
 
@@ -50,29 +52,209 @@ public class Day08Test {
       }
    }
 
-   @Test
-   void part1() throws IOException {
+   record Display(int[] patterns, int[] outputs) {
+
+      static Display parse(CharSequence s) {
+
+         DisplayBuilder builder = new DisplayBuilder();
+         for (int i = 0; i < s.length(); i++) {
+            builder.accept(s.charAt(i));
+         }
+         return builder.build();
+      }
+
+      static Display parse(MappedLineReader reader) {
+
+         DisplayBuilder builder = new DisplayBuilder();
+         for (int i = 0; i < reader.length(); i++) {
+            builder.accept(reader.byteAt(i));
+         }
+         return builder.build();
+      }
+
+      static List<Display> read(MappedLineReader reader) throws IOException {
+
+         List<Display> result = new ArrayList<>();
+         while (reader.nextLine()) {
+            if (!reader.isBlank()) {
+               result.add(parse(reader));
+            }
+         }
+         return result;
+      }
+   }
+
+   private static class DisplayBuilder {
+
+      private final int[] patterns = new int[10];
+      private final int[] outputs = new int[4];
+      private int patternCount;
+      private int outputCount;
+      private int mask;
+      private boolean readingOutputs;
+
+      void accept(int c) {
+
+         if (c >= 'a' && c <= 'g') {
+            mask |= 1 << (c - 'a');
+         } else {
+            endPattern();
+            if (c == '|') {
+               readingOutputs = true;
+            }
+         }
+      }
+
+      private void endPattern() {
+
+         if (mask == 0) {
+            return;
+         }
+         if (readingOutputs) {
+            if (outputCount == outputs.length) {
+               throw new IllegalArgumentException("Expected 4 outputs but got more");
+            }
+            outputs[outputCount++] = mask;
+         } else {
+            if (patternCount == patterns.length) {
+               throw new IllegalArgumentException("Expected 10 patterns but got more");
+            }
+            patterns[patternCount++] = mask;
+         }
+         mask = 0;
+      }
+
+      Display build() {
+
+         endPattern();
+         if (patternCount != patterns.length || outputCount != outputs.length) {
+            throw new IllegalArgumentException("Expected 10 patterns and 4 outputs but got " + patternCount + " and " + outputCount);
+         }
+         return new Display(patterns, outputs);
+      }
+   }
+
+   static class MaskSolver {
+
+      static byte[] solve(int[] patterns) {
+
+         int one = findBySize(patterns, 2);
+         int four = findBySize(patterns, 4);
+
+         int nine = 0;
+         for (int pattern : patterns) {
+            if (Integer.bitCount(pattern) == 6 && (pattern & four) == four) {
+               nine = pattern;
+            }
+         }
+
+         byte[] digits = new byte[128];
+         Arrays.fill(digits, (byte) -1);
+
+         for (int pattern : patterns) {
+            digits[pattern] = (byte) switch (Integer.bitCount(pattern)) {
+               case 2 -> 1;
+               case 3 -> 7;
+               case 4 -> 4;
+               case 7 -> 8;
+               case 6 -> pattern == nine ? 9 : Integer.bitCount(pattern & one) == 1 ? 6 : 0;
+               case 5 -> (pattern & one) == one ? 3 : (pattern & ~nine) == 0 ? 5 : 2;
+               default -> throw new IllegalArgumentException("Unexpected pattern " + Integer.toBinaryString(pattern));
+            };
+         }
+         return digits;
+      }
+
+      private static int findBySize(int[] patterns, int size) {
+
+         for (int pattern : patterns) {
+            if (Integer.bitCount(pattern) == size) {
+               return pattern;
+            }
+         }
+         throw new IllegalArgumentException("No pattern of size " + size);
+      }
+
+      static int decode(Display display) {
+
+         byte[] digits = solve(display.patterns());
+
+         int value = 0;
+         for (int output : display.outputs()) {
+            value = value * 10 + digits[output];
+         }
+         return value;
+      }
+
+      static long sum(List<Display> displays) {
+         return displays.parallelStream().mapToLong(MaskSolver::decode).sum();
+      }
+   }
+
+   @Override
+   public List<Sample> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(8, resourceName);
+      List<Sample> samples = Utils.readValuesFromResources(resourceName, Sample::parse);
+      if (event.shouldCommit()) {
+         event.records(samples.size()).commit();
+      }
+      return samples;
+   }
+
+   @Override
+   public List<Sample> freeze(List<Sample> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Long solvePart1(List<Sample> samples) {
 
-      List<Sample> samples = Utils.readValuesFromResources("/day08.txt", Sample::parse);
+      SolveEvent event = SolveEvent.begin(8, 1);
 
-      long unambigousOutputsCount = samples.stream()
+      long count = samples.stream()
               .map(sample -> sample.outputs)
               .flatMap(Collection::stream)
               .filter(output -> Arrays.asList(2,3,4,7).contains(output.size()))
               .count();
 
-      assertThat(unambigousOutputsCount, is(449L));
+      if (event.shouldCommit()) {
+         event.iterations(samples.size()).commit();
+      }
+      return count;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public Integer solvePart2(List<Sample> samples) {
 
-      List<Sample> samples = Utils.readValuesFromResources("/day08.txt", Sample::parse);
+      SolveEvent event = SolveEvent.begin(8, 2);
 
       int sum = samples.stream()
             .map(s -> Solver.apply(s, Solver.solve(s)))
             .reduce(0, Integer::sum);
 
+      if (event.shouldCommit()) {
+         event.iterations(samples.size()).commit();
+      }
+      return sum;
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      List<Sample> samples = load("/day08.txt");
+
+      long unambigousOutputsCount = solvePart1(samples);
+
+      assertThat(unambigousOutputsCount, is(449L));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      List<Sample> samples = load("/day08.txt");
+
+      int sum = solvePart2(samples);
+
       assertThat(sum, is(968175));
    }
 
@@ -138,4 +320,37 @@ public class Day08Test {
                  .reduce(0, (sum, v) -> sum * 10 + v, Integer::sum);
       }
    }
+
+   @Test
+   void part1WithMasks() throws IOException {
+
+      try (var reader = MappedLineReader.openResource("/day08.txt")) {
+
+         long unambigousOutputsCount = Display.read(reader).stream()
+               .flatMapToInt(display -> Arrays.stream(display.outputs()))
+               .map(Integer::bitCount)
+               .filter(size -> size == 2 || size == 3 || size == 4 || size == 7)
+               .count();
+
+         assertThat(unambigousOutputsCount, is(449L));
+      }
+   }
+
+   @Test
+   void part2WithMasks() throws IOException {
+
+      try (var reader = MappedLineReader.openResource("/day08.txt")) {
+         assertThat(MaskSolver.sum(Display.read(reader)), is(968175L));
+      }
+   }
+
+   @Test
+   void displayRejectsExtraPatternsAndOutputs() {
+
+      String patterns = "acedgfb cdfbe gcdfa fbcad dab cefabd cdfgeb eafb cagedb ab";
+
+      assertThrows(IllegalArgumentException.class, () -> Display.parse(patterns + " ab | cdfeb fcadb cdfeb cdbaf"));
+      assertThrows(IllegalArgumentException.class, () -> Display.parse(patterns + " | cdfeb fcadb cdfeb cdbaf ab"));
+      assertThrows(IllegalArgumentException.class, () -> Display.parse(patterns + " | cdfeb fcadb cdfeb"));
+   }
 }
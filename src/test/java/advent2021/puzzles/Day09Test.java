@@ -1,91 +1,390 @@
 package advent2021.puzzles;
 
-import advent2021.misc.Point;
-import advent2021.misc.Table;
+import advent2021.misc.ByteTable;
+import advent2021.misc.DigitGridLoader;
+import advent2021.misc.IntTable;
+import advent2021.misc.MappedLineReader;
+import advent2021.misc.NeighborIndex;
 import advent2021.misc.Utils;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-public class Day09Test {
+public class Day09Test implements Puzzle<ByteTable> {
 
+   record BasinReport(long lowPointCount, long riskLevelSum, long[] basinSizes) {
 
-   @Test
-   void part1() throws IOException {
+      long productOfLargestBasins(int count) {
+
+         long[] sizes = basinSizes.clone();
+         Arrays.sort(sizes);
+
+         long product = 1;
+         for (int i = sizes.length - 1; i >= Math.max(0, sizes.length - count); i--) {
+            product *= sizes[i];
+         }
+         return product;
+      }
+   }
+
+   static class BasinLabeler {
+
+      private int width = -1;
+
+      private byte[] rowAbove;
+      private byte[] pendingRow;
+      private byte[] incomingRow;
+      private int[] labelsAbove;
+      private int[] labels;
+
+      private int[] parents = new int[64];
+      private long[] sizes = new long[64];
+      private int labelCount;
+
+      private long lowPointCount;
+      private long riskLevelSum;
+
+      static BasinReport label(MappedLineReader reader) throws IOException {
+
+         BasinLabeler labeler = new BasinLabeler();
+         byte[] row = new byte[0];
+
+         while (reader.nextLine()) {
+
+            if (reader.isBlank()) {
+               continue;
+            }
+            if (row.length != reader.length()) {
+               row = new byte[reader.length()];
+            }
+            for (int i = 0; i < row.length; i++) {
+               row[i] = (byte) (reader.byteAt(i) - '0');
+            }
+            labeler.acceptRow(row);
+         }
+         return labeler.finish();
+      }
+
+      void acceptRow(byte[] heights) {
+
+         if (width < 0) {
+            width = heights.length;
+            incomingRow = new byte[width];
+            labelsAbove = new int[width];
+            labels = new int[width];
+            Arrays.fill(labels, -1);
+         } else if (heights.length != width) {
+            throw new IllegalArgumentException("Expected a row of " + width + " values but got " + heights.length);
+         }
+
+         System.arraycopy(heights, 0, incomingRow, 0, width);
+
+         labelRow(incomingRow);
+
+         if (pendingRow != null) {
+            findLowPoints(rowAbove, pendingRow, incomingRow);
+         }
+
+         byte[] recycled = rowAbove != null ? rowAbove : new byte[width];
+         rowAbove = pendingRow;
+         pendingRow = incomingRow;
+         incomingRow = recycled;
+      }
+
+      BasinReport finish() {
+
+         if (pendingRow != null) {
+            findLowPoints(rowAbove, pendingRow, null);
+            pendingRow = null;
+         }
+
+         long[] basinSizes = new long[labelCount];
+         int basinCount = 0;
+         for (int label = 0; label < labelCount; label++) {
+            if (parents[label] == label) {
+               basinSizes[basinCount++] = sizes[label];
+            }
+         }
+         return new BasinReport(lowPointCount, riskLevelSum, Arrays.copyOf(basinSizes, basinCount));
+      }
+
+      private void labelRow(byte[] row) {
+
+         int[] swap = labelsAbove;
+         labelsAbove = labels;
+         labels = swap;
+
+         for (int x = 0; x < width; x++) {
+
+            if (row[x] == 9) {
+               labels[x] = -1;
+               continue;
+            }
+
+            int left = x > 0 ? labels[x - 1] : -1;
+            int above = labelsAbove[x];
+
+            int label;
+            if (left < 0 && above < 0) {
+               label = newLabel();
+            } else if (left < 0) {
+               label = find(above);
+            } else if (above < 0) {
+               label = find(left);
+            } else {
+               label = union(left, above);
+            }
+
+            labels[x] = label;
+            sizes[label]++;
+         }
+      }
+
+      private void findLowPoints(byte[] above, byte[] row, byte[] below) {
+
+         for (int x = 0; x < width; x++) {
+
+            int height = row[x];
+            if ((x == 0 || row[x - 1] > height)
+                  && (x == width - 1 || row[x + 1] > height)
+                  && (above == null || above[x] > height)
+                  && (below == null || below[x] > height)) {
+               lowPointCount++;
+               riskLevelSum += height + 1;
+            }
+         }
+      }
+
+      private int newLabel() {
+
+         if (labelCount == parents.length) {
+            parents = Arrays.copyOf(parents, labelCount * 2);
+            sizes = Arrays.copyOf(sizes, labelCount * 2);
+         }
+         parents[labelCount] = labelCount;
+         return labelCount++;
+      }
+
+      private int find(int label) {
+
+         while (parents[label] != label) {
+            parents[label] = parents[parents[label]];
+            label = parents[label];
+         }
+         return label;
+      }
+
+      private int union(int label1, int label2) {
+
+         int root1 = find(label1);
+         int root2 = find(label2);
+
+         if (root1 == root2) {
+            return root1;
+         }
+         if (sizes[root1] < sizes[root2]) {
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+         }
+         parents[root2] = root1;
+         sizes[root1] += sizes[root2];
+         return root1;
+      }
+   }
+
+   @Override
+   public ByteTable parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(9, resourceName);
+      ByteTable table = loadTable(resourceName);
+      if (event.shouldCommit()) {
+         event.records(table.getRowCount()).grid(table.getColCount(), table.getRowCount()).commit();
+      }
+      return table;
+   }
+
+   @Override
+   public ByteTable freeze(ByteTable table) {
+      table.freeze();
+      return table;
+   }
 
-      Table<Integer> table = loadTable("/day09.txt");
+   @Override
+   public Integer solvePart1(ByteTable table) {
 
-      int total = findLowPoints(table).stream()
-            .map(table::getValueAt)
+      SolveEvent event = SolveEvent.begin(9, 1);
+
+      List<Integer> lowPoints = findLowPoints(table);
+      int riskLevelSum = lowPoints.stream()
+            .map(table::getValue)
             .map(n -> n + 1)
             .reduce(Integer::sum)
             .orElseThrow();
 
-      assertThat(total, is(448));
+      if (event.shouldCommit()) {
+         event.iterations(lowPoints.size()).grid(table.getColCount(), table.getRowCount()).commit();
+      }
+      return riskLevelSum;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public Integer solvePart2(ByteTable table) {
 
-      Table<Integer> table = loadTable("/day09.txt");
+      SolveEvent event = SolveEvent.begin(9, 2);
 
-      int product = findLowPoints(table).stream()
-         .map(p -> findBasin(table, p, Collections.emptySet()))
+      List<Integer> lowPoints = findLowPoints(table);
+      int product = lowPoints.stream()
+         .map(cell -> findBasin(table, cell, Collections.emptySet()))
          .map(Set::size)
          .sorted((b1, b2) -> Integer.compare(b2, b1))
          .limit(3)
          .reduce(1, (a,b) -> a*b);
 
-      assertThat(product, is(1417248));
+      if (event.shouldCommit()) {
+         event.iterations(lowPoints.size()).grid(table.getColCount(), table.getRowCount()).commit();
+      }
+      return product;
    }
 
-   private List<Point> findLowPoints(Table<Integer> table) {
+   @Test
+   void part1() throws IOException {
 
-      Predicate<Point> hasNoSmallerNeighbor = point -> {
-         int pointValue = table.getValueAt(point);
-         return table.findNeighbors(point, false, neighbor -> table.getValueAt(neighbor) <= pointValue).isEmpty();
-      };
+      ByteTable table = load("/day09.txt");
 
-      return table.getPoints().stream()
-            .filter(hasNoSmallerNeighbor)
-            .collect(Collectors.toList());
+      assertThat(solvePart1(table), is(448));
    }
 
-   private Set<Point> findBasin(Table<Integer> table, Point point, Set<Point> excludedPoints) {
+   @Test
+   void part2() throws IOException {
+
+      ByteTable table = load("/day09.txt");
+
+      assertThat(solvePart2(table), is(1417248));
+   }
+
+   private List<Integer> findLowPoints(ByteTable table) {
+
+      NeighborIndex neighbors = table.getNeighborIndex(false);
+
+      List<Integer> result = new ArrayList<>();
 
-      Predicate<Point> isNeighborInBasin = neighbor -> {
-         int neighborValue = table.getValueAt(neighbor);
-         int pointValue = table.getValueAt(point);
-         return neighborValue != 9 && !excludedPoints.contains(neighbor) && neighborValue > pointValue;
-      };
+      for (int cell = 0; cell < table.getCellCount(); cell++) {
 
-      Set<Point> result = new HashSet<>();
-      for (Point neighbor : table.findNeighbors(point, false, isNeighborInBasin)) {
-         result.addAll(findBasin(table, neighbor, Utils.Sets.union(excludedPoints, Collections.singleton(point))));
+         int cellValue = table.getValue(cell);
+
+         boolean hasNoSmallerNeighbor = true;
+         for (int i = neighbors.start(cell); i < neighbors.end(cell) && hasNoSmallerNeighbor; i++) {
+            hasNoSmallerNeighbor = table.getValue(neighbors.neighborAt(i)) > cellValue;
+         }
+
+         if (hasNoSmallerNeighbor) {
+            result.add(cell);
+         }
+      }
+      return result;
+   }
+
+   private Set<Integer> findBasin(ByteTable table, int cell, Set<Integer> excludedCells) {
+
+      NeighborIndex neighbors = table.getNeighborIndex(false);
+      int cellValue = table.getValue(cell);
+
+      Set<Integer> result = new HashSet<>();
+      for (int i = neighbors.start(cell); i < neighbors.end(cell); i++) {
+
+         int neighbor = neighbors.neighborAt(i);
+         int neighborValue = table.getValue(neighbor);
+
+         if (neighborValue != 9 && !excludedCells.contains(neighbor) && neighborValue > cellValue) {
+            result.addAll(findBasin(table, neighbor, Utils.Sets.union(excludedCells, Collections.singleton(cell))));
+         }
       }
 
-      result.add(point);
+      result.add(cell);
 
       return result;
    }
 
-   private Table<Integer> loadTable(String resourceName) throws IOException {
+   private ByteTable loadTable(String resourceName) throws IOException {
+      return DigitGridLoader.loadResource(resourceName);
+   }
 
-      List<List<Integer>> rows = Utils.readValuesFromResources(resourceName, Utils::digitsToInt);
+   @Test
+   void part1WithBasinLabeler() throws IOException {
 
-      Table<Integer> table = new Table<>();
-      for (List<Integer> row: rows) {
-         table.addRow(row);
+      try (var reader = MappedLineReader.openResource("/day09.txt")) {
+         assertThat(BasinLabeler.label(reader).riskLevelSum(), is(448L));
       }
-      return table;
+   }
+
+   @Test
+   void part2WithBasinLabeler() throws IOException {
+
+      try (var reader = MappedLineReader.openResource("/day09.txt")) {
+         assertThat(BasinLabeler.label(reader).productOfLargestBasins(3), is(1417248L));
+      }
+   }
+
+   @Test
+   void loadGridWithWindowsLineEndings() {
+
+      ByteTable table = DigitGridLoader.parse(ByteBuffer.wrap("123\r\n456\r\n789\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+      assertThat(table.getColCount(), is(3));
+      assertThat(table.getRowCount(), is(3));
+      assertThat(table.getValueAt(0, 0), is((byte) 1));
+      assertThat(table.getValueAt(2, 2), is((byte) 9));
+   }
+
+   @Test
+   void rejectRaggedGrid() {
+
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> DigitGridLoader.parse(ByteBuffer.wrap("123\n45\n6789\n".getBytes(StandardCharsets.US_ASCII))));
+
+      assertThat(e.getMessage(), is("Row 1 is not 3 digits wide"));
+
+      e = assertThrows(IllegalArgumentException.class,
+            () -> DigitGridLoader.parse(ByteBuffer.wrap("123\r\n456\r\n78\r\n".getBytes(StandardCharsets.US_ASCII))));
+
+      assertThat(e.getMessage(), is("Row 2 is not 3 digits wide"));
+   }
+
+   @Test
+   void loadIntTableFromDigitStrings() throws IOException {
+
+      ByteTable expected = loadTable("/day09.txt");
+
+      IntTable table = new IntTable();
+      for (String line : Utils.readValuesFromResources("/day09.txt")) {
+         table.addRow(Utils.digitsToIntArray(line));
+      }
+
+      assertThat(table.getColCount(), is(expected.getColCount()));
+      assertThat(table.getRowCount(), is(expected.getRowCount()));
+      for (int i = 0; i < expected.getColCount() * expected.getRowCount(); i++) {
+         assertThat(table.getValue(i), is((int) expected.getValue(i)));
+      }
+   }
+
+   @Test
+   void rejectNonDigitCharacters() {
+
+      assertThat(Utils.digitsToInt("0129"), is(List.of(0, 1, 2, 9)));
+      assertThrows(IllegalArgumentException.class, () -> Utils.digitsToInt("12a"));
+      assertThrows(IllegalArgumentException.class, () -> Utils.digitsToIntArray("1 2"));
+      assertThrows(IllegalArgumentException.class, () -> Utils.digitsToByteArray("\u0661"));
    }
 }
@@ -4,17 +4,28 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import advent2021.misc.Utils;
 
-public class Day10Test {
+public class Day10Test implements Puzzle<List<String>> {
 
    static abstract class ParseResult {}
 
@@ -68,27 +79,261 @@ public class Day10Test {
       }
    }
 
-   @Test
-   void part1() throws IOException {
+   record NavigationReport(long corruptionScore, long[] completionScores) {
+
+      long middleCompletionScore() {
+         return select(completionScores.clone(), completionScores.length / 2);
+      }
+
+      private static long select(long[] values, int rank) {
+
+         int low = 0;
+         int high = values.length - 1;
+
+         while (low < high) {
+
+            long pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+
+            while (i <= j) {
+               while (values[i] < pivot) {
+                  i++;
+               }
+               while (values[j] > pivot) {
+                  j--;
+               }
+               if (i <= j) {
+                  long swap = values[i];
+                  values[i++] = values[j];
+                  values[j--] = swap;
+               }
+            }
+
+            if (rank <= j) {
+               high = j;
+            } else if (rank >= i) {
+               low = i;
+            } else {
+               return values[rank];
+            }
+         }
+         return values[rank];
+      }
+   }
+
+   static class NavigationScorer extends RecursiveTask<NavigationScorer.ChunkScore> {
+
+      private static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+      private static final int WINDOW_SIZE = 1 << 30;
+
+      static class ChunkScore {
+
+         long corruptionScore;
+         long[] completionScores = new long[64];
+         int completionCount;
 
-      List<String> values = Utils.readValuesFromResources("/day10.txt");
+         void addCompletionScore(long score) {
+
+            if (completionCount == completionScores.length) {
+               completionScores = Arrays.copyOf(completionScores, completionCount * 2);
+            }
+            completionScores[completionCount++] = score;
+         }
+
+         ChunkScore merge(ChunkScore other) {
+
+            corruptionScore += other.corruptionScore;
+            for (int i = 0; i < other.completionCount; i++) {
+               addCompletionScore(other.completionScores[i]);
+            }
+            return this;
+         }
+
+         NavigationReport toReport() {
+            return new NavigationReport(corruptionScore, Arrays.copyOf(completionScores, completionCount));
+         }
+      }
+
+      private final ByteBuffer input;
+      private final int from;
+      private final int to;
+      private final int sequentialThreshold;
+
+      private NavigationScorer(ByteBuffer input, int from, int to, int sequentialThreshold) {
+         this.input = input;
+         this.from = from;
+         this.to = to;
+         this.sequentialThreshold = sequentialThreshold;
+      }
+
+      static NavigationReport score(ByteBuffer input) {
+         return score(input, SEQUENTIAL_THRESHOLD);
+      }
+
+      static NavigationReport score(ByteBuffer input, int sequentialThreshold) {
+         return ForkJoinPool.commonPool().invoke(new NavigationScorer(input, 0, input.limit(), sequentialThreshold)).toReport();
+      }
+
+      static NavigationReport score(Path path) throws IOException {
+         return score(path, WINDOW_SIZE, SEQUENTIAL_THRESHOLD);
+      }
+
+      static NavigationReport score(Path path, int windowSize, int sequentialThreshold) throws IOException {
+
+         ChunkScore score = new ChunkScore();
+
+         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+
+               int length = (int) Math.min(windowSize, size - position);
+               MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+               int limit = length;
+               if (position + length < size) {
+                  while (limit > 0 && window.get(limit - 1) != '\n') {
+                     limit--;
+                  }
+                  if (limit == 0) {
+                     throw new IOException("Line at offset " + position + " does not fit in a window of " + windowSize + " bytes");
+                  }
+               }
+
+               score.merge(ForkJoinPool.commonPool().invoke(new NavigationScorer(window, 0, limit, sequentialThreshold)));
+               position += limit;
+            }
+         }
+         return score.toReport();
+      }
+
+      @Override
+      protected ChunkScore compute() {
+
+         if (to - from > sequentialThreshold) {
+
+            int middle = (from + to) >>> 1;
+            while (middle < to && input.get(middle - 1) != '\n') {
+               middle++;
+            }
+
+            if (middle < to) {
+               NavigationScorer first = new NavigationScorer(input, from, middle, sequentialThreshold);
+               first.fork();
+               ChunkScore second = new NavigationScorer(input, middle, to, sequentialThreshold).compute();
+               return first.join().merge(second);
+            }
+         }
+
+         return scoreLines();
+      }
+
+      private ChunkScore scoreLines() {
+
+         ChunkScore score = new ChunkScore();
+         byte[] expectedClosingChars = new byte[128];
+         int depth = 0;
+         boolean corrupted = false;
+
+         for (int i = from; i <= to; i++) {
+
+            byte c = i < to ? input.get(i) : (byte) '\n';
+
+            if (c == '\n') {
+               if (!corrupted && depth > 0) {
+                  long total = 0;
+                  while (depth > 0) {
+                     total = total * 5 + completionScore(expectedClosingChars[--depth]);
+                  }
+                  score.addCompletionScore(total);
+               }
+               depth = 0;
+               corrupted = false;
+
+            } else if (corrupted) {
+               continue;
+
+            } else if (isOpeningChar((char) c)) {
+               if (depth == expectedClosingChars.length) {
+                  expectedClosingChars = Arrays.copyOf(expectedClosingChars, depth * 2);
+               }
+               expectedClosingChars[depth++] = (byte) getExpectedClosingChar((char) c);
+
+            } else if (isClosingChar((char) c)) {
+               if (depth == 0) {
+                  corrupted = true;
+               } else if (expectedClosingChars[--depth] != c) {
+                  score.corruptionScore += corruptionScore(c);
+                  corrupted = true;
+               }
+            }
+         }
+         return score;
+      }
+
+      private static long corruptionScore(byte c) {
+         return switch (c) {
+            case ')' -> 3;
+            case ']' -> 57;
+            case '}' -> 1197;
+            case '>' -> 25137;
+            default -> throw new IllegalStateException();
+         };
+      }
+
+      private static long completionScore(byte c) {
+         return switch (c) {
+            case ')' -> 1;
+            case ']' -> 2;
+            case '}' -> 3;
+            case '>' -> 4;
+            default -> throw new IllegalStateException();
+         };
+      }
+   }
+
+   @Override
+   public List<String> parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(10, resourceName);
+      List<String> values = Utils.readValuesFromResources(resourceName);
+      if (event.shouldCommit()) {
+         event.records(values.size()).commit();
+      }
+      return values;
+   }
+
+   @Override
+   public List<String> freeze(List<String> values) {
+      return List.copyOf(values);
+   }
+
+   @Override
+   public Long solvePart1(List<String> values) {
+
+      SolveEvent event = SolveEvent.begin(10, 1);
 
       List<ParseResult> parseErrors = parseValues(values);
 
-      long total = parseErrors.stream()
+      long score = parseErrors.stream()
          .filter(r -> r instanceof CorruptionError)
          .map(r -> (CorruptionError) r)
          .map(CorruptionError::getScore)
          .reduce(Long::sum)
          .orElseThrow();
 
-      assertThat(total, is(240123L));
+      if (event.shouldCommit()) {
+         event.iterations(values.size()).commit();
+      }
+      return score;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public Long solvePart2(List<String> values) {
 
-      List<String> values = Utils.readValuesFromResources("/day10.txt");
+      SolveEvent event = SolveEvent.begin(10, 2);
 
       List<ParseResult> parseErrors = parseValues(values);
 
@@ -98,7 +343,26 @@ public class Day10Test {
               .map(IncompleteError::getScore)
               .sorted().toList();
 
-      assertThat(incompleteErrors.get(incompleteErrors.size() / 2), is(3260812321L));
+      if (event.shouldCommit()) {
+         event.iterations(values.size()).commit();
+      }
+      return incompleteErrors.get(incompleteErrors.size() / 2);
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      List<String> values = load("/day10.txt");
+
+      assertThat(solvePart1(values), is(240123L));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      List<String> values = load("/day10.txt");
+
+      assertThat(solvePart2(values), is(3260812321L));
    }
 
    private List<ParseResult> parseValues(List<String> values) {
@@ -162,4 +426,42 @@ public class Day10Test {
          default -> throw new IllegalStateException();
       };
    }
+
+   @Test
+   void part1WithNavigationScorer() throws IOException {
+
+      var input = ByteBuffer.wrap(Files.readAllBytes(Utils.resourcePath("/day10.txt")));
+
+      assertThat(NavigationScorer.score(input).corruptionScore(), is(240123L));
+   }
+
+   @Test
+   void part2WithNavigationScorer() throws IOException {
+
+      var input = ByteBuffer.wrap(Files.readAllBytes(Utils.resourcePath("/day10.txt")));
+
+      assertThat(NavigationScorer.score(input).middleCompletionScore(), is(3260812321L));
+   }
+
+   @Test
+   void navigationScorerOnGeneratedInput(@TempDir Path dir) throws IOException {
+
+      Path input = dir.resolve("day10-generated.txt");
+      try (Writer out = Files.newBufferedWriter(input)) {
+         InputGenerators.navigation(20_000, 2021, out);
+      }
+      List<String> values = Files.readAllLines(input);
+
+      long corruptionScore = solvePart1(values);
+      long middleCompletionScore = solvePart2(values);
+
+      for (NavigationReport report : List.of(
+            NavigationScorer.score(ByteBuffer.wrap(Files.readAllBytes(input)), 256),
+            NavigationScorer.score(input, 4096, 256),
+            NavigationScorer.score(input))) {
+
+         assertThat(report.corruptionScore(), is(corruptionScore));
+         assertThat(report.middleCompletionScore(), is(middleCompletionScore));
+      }
+   }
 }
@@ -1,94 +1,362 @@
 package advent2021.puzzles;
 
-import advent2021.misc.Table;
-import advent2021.misc.Utils;
-import advent2021.misc.Point;
+import advent2021.misc.ByteTable;
+import advent2021.misc.DigitGridLoader;
+import advent2021.misc.NeighborIndex;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
-import java.util.*;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
-public class Day11Test {
+public class Day11Test implements Puzzle<ByteTable> {
 
-   static Table<Integer> load(String resourceName) throws IOException {
+   static ByteTable loadTable(String resourceName) throws IOException {
 
-      List<List<Integer>> rows = Utils.readValuesFromResources(resourceName, Utils::digitsToInt);
+      return DigitGridLoader.loadResource(resourceName);
+   }
+
+   static class OctopusSwarm {
+
+      private static final long NIBBLE_ONES = 0x1111111111111111L;
+
+      private final int width;
+      private final int height;
+      private final int nibbleWordsPerRow;
+      private final int bitWordsPerRow;
+
+      private final long[] energy;
+      private final long[] validNibbles;
+      private final long[] validBits;
+
+      private final long[] charged;
+      private final long[] flashed;
+      private long[] newlyFlashed;
+      private long[] nextFlashed;
+      private final long[] shifted;
+
+      OctopusSwarm(ByteTable table) {
+
+         this.width = table.getColCount();
+         this.height = table.getRowCount();
+         this.nibbleWordsPerRow = (width + 15) >>> 4;
+         this.bitWordsPerRow = (width + 63) >>> 6;
+
+         this.energy = new long[height * nibbleWordsPerRow];
+         this.validNibbles = new long[nibbleWordsPerRow];
+         this.validBits = new long[bitWordsPerRow];
+
+         for (int x = 0; x < width; x++) {
+            validNibbles[x >>> 4] |= 1L << ((x & 15) << 2);
+            validBits[x >>> 6] |= 1L << x;
+         }
+
+         for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+               energy[y * nibbleWordsPerRow + (x >>> 4)] |= (long) table.getValueAt(x, y) << ((x & 15) << 2);
+            }
+         }
+
+         this.charged = new long[height * bitWordsPerRow];
+         this.flashed = new long[height * bitWordsPerRow];
+         this.newlyFlashed = new long[height * bitWordsPerRow];
+         this.nextFlashed = new long[height * bitWordsPerRow];
+         this.shifted = new long[bitWordsPerRow];
+      }
 
-      Table<Integer> table = new Table<>();
-      for (List<Integer> row: rows) {
-         table.addRow(row);
+      int getCellCount() {
+         return width * height;
+      }
+
+      int step() {
+
+         for (int y = 0; y < height; y++) {
+            for (int k = 0; k < nibbleWordsPerRow; k++) {
+               energy[y * nibbleWordsPerRow + k] += validNibbles[k];
+            }
+            updateCharged(y);
+         }
+
+         System.arraycopy(charged, 0, flashed, 0, charged.length);
+         System.arraycopy(charged, 0, newlyFlashed, 0, charged.length);
+
+         boolean cascading = !isEmpty(newlyFlashed);
+         while (cascading) {
+
+            for (int y = 0; y < height; y++) {
+               for (int dy = -1; dy <= 1; dy++) {
+                  if (y + dy < 0 || y + dy >= height) {
+                     continue;
+                  }
+                  for (int dx = -1; dx <= 1; dx++) {
+                     if ((dx != 0 || dy != 0) && shift(newlyFlashed, y + dy, dx)) {
+                        increment(y);
+                     }
+                  }
+               }
+            }
+
+            cascading = false;
+            for (int i = 0; i < charged.length; i++) {
+               nextFlashed[i] = charged[i] & ~flashed[i];
+               flashed[i] |= nextFlashed[i];
+               cascading |= nextFlashed[i] != 0;
+            }
+
+            long[] swap = newlyFlashed;
+            newlyFlashed = nextFlashed;
+            nextFlashed = swap;
+         }
+
+         int flashCount = 0;
+         for (int y = 0; y < height; y++) {
+            for (int k = 0; k < nibbleWordsPerRow; k++) {
+               energy[y * nibbleWordsPerRow + k] &= ~(spread(segment(flashed, y, k)) * 0xF);
+            }
+            for (int w = 0; w < bitWordsPerRow; w++) {
+               flashCount += Long.bitCount(flashed[y * bitWordsPerRow + w]);
+            }
+         }
+         return flashCount;
+      }
+
+      private boolean shift(long[] bits, int row, int dx) {
+
+         int offset = row * bitWordsPerRow;
+         boolean any = false;
+
+         for (int w = 0; w < bitWordsPerRow; w++) {
+
+            long word = bits[offset + w];
+            if (dx > 0) {
+               word = (word << 1) | (w > 0 ? bits[offset + w - 1] >>> 63 : 0);
+            } else if (dx < 0) {
+               word = (word >>> 1) | (w + 1 < bitWordsPerRow ? bits[offset + w + 1] << 63 : 0);
+            }
+            shifted[w] = word & validBits[w];
+            any |= shifted[w] != 0;
+         }
+         return any;
+      }
+
+      private void increment(int row) {
+
+         for (int w = 0; w < bitWordsPerRow; w++) {
+            shifted[w] &= ~charged[row * bitWordsPerRow + w];
+         }
+
+         for (int k = 0; k < nibbleWordsPerRow; k++) {
+            energy[row * nibbleWordsPerRow + k] += spread(segment(shifted, 0, k));
+         }
+
+         updateCharged(row);
+      }
+
+      private void updateCharged(int row) {
+
+         for (int w = 0; w < bitWordsPerRow; w++) {
+            charged[row * bitWordsPerRow + w] = 0;
+         }
+
+         for (int k = 0; k < nibbleWordsPerRow; k++) {
+            long e = energy[row * nibbleWordsPerRow + k];
+            long atTen = (e >>> 3) & (e >>> 1) & NIBBLE_ONES;
+            charged[row * bitWordsPerRow + (k >>> 2)] |= compress(atTen) << ((k & 3) << 4);
+         }
+      }
+
+      private long segment(long[] bits, int row, int nibbleWord) {
+         return (bits[row * bitWordsPerRow + (nibbleWord >>> 2)] >>> ((nibbleWord & 3) << 4)) & 0xFFFFL;
+      }
+
+      private static long spread(long bits) {
+
+         long x = bits & 0xFFFFL;
+         x = (x | (x << 24)) & 0x000000FF000000FFL;
+         x = (x | (x << 12)) & 0x000F000F000F000FL;
+         x = (x | (x << 6)) & 0x0303030303030303L;
+         x = (x | (x << 3)) & NIBBLE_ONES;
+         return x;
+      }
+
+      private static long compress(long nibbles) {
+
+         long x = nibbles & NIBBLE_ONES;
+         x = (x | (x >>> 3)) & 0x0303030303030303L;
+         x = (x | (x >>> 6)) & 0x000F000F000F000FL;
+         x = (x | (x >>> 12)) & 0x000000FF000000FFL;
+         x = (x | (x >>> 24)) & 0xFFFFL;
+         return x;
+      }
+
+      private static boolean isEmpty(long[] bits) {
+
+         for (long word : bits) {
+            if (word != 0) {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   @Override
+   public ByteTable parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(11, resourceName);
+      ByteTable table = loadTable(resourceName);
+      if (event.shouldCommit()) {
+         event.records(table.getRowCount()).grid(table.getColCount(), table.getRowCount()).commit();
       }
       return table;
    }
 
-   @Test
-   void part1() throws IOException {
+   @Override
+   public ByteTable freeze(ByteTable table) {
+      table.freeze();
+      return table;
+   }
+
+   @Override
+   public Integer solvePart1(ByteTable initialTable) {
 
-      Table<Integer> table = load("/day11.txt");
+      SolveEvent event = SolveEvent.begin(11, 1);
+      ByteTable table = new ByteTable(initialTable);
 
-      int result = IntStream.range(0, 100)
+      int flashCount = IntStream.range(0, 100)
               .map(i -> playRound(table))
               .reduce(Integer::sum)
               .orElseThrow();
 
-      assertThat(result, is(1588));
+      if (event.shouldCommit()) {
+         event.iterations(100).grid(table.getColCount(), table.getRowCount()).commit();
+      }
+      return flashCount;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public Integer solvePart2(ByteTable initialTable) {
 
-      Table<Integer> table = load("/day11.txt");
+      SolveEvent event = SolveEvent.begin(11, 2);
+      ByteTable table = new ByteTable(initialTable);
 
       int stepCount = 1;
       while (playRound(table) != table.getColCount() * table.getRowCount()) {
          stepCount++;
       }
 
-      assertThat(stepCount, is(517));
+      if (event.shouldCommit()) {
+         event.iterations(stepCount).grid(table.getColCount(), table.getRowCount()).commit();
+      }
+      return stepCount;
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      ByteTable table = load("/day11.txt");
+
+      assertThat(solvePart1(table), is(1588));
    }
 
-   private int playRound(Table<Integer> table) {
+   @Test
+   void part2() throws IOException {
+
+      ByteTable table = load("/day11.txt");
+
+      assertThat(solvePart2(table), is(517));
+   }
+
+   private int playRound(ByteTable table) {
+
+      NeighborIndex neighbors = table.getNeighborIndex(true);
 
-      List<Point> flashedPoints = incrementAndFlash(table, table.getPoints());
+      int[] flashedCells = new int[table.getCellCount()];
+      int flashCount = 0;
 
-      Set<Point> allFlashedPoints = new HashSet<>(flashedPoints);
+      for (int cell = 0; cell < table.getCellCount(); cell++) {
+         if (incrementAndFlash(table, cell)) {
+            flashedCells[flashCount++] = cell;
+         }
+      }
 
-      while (flashedPoints.size() > 0) {
+      for (int f = 0; f < flashCount; f++) {
 
-         List<Point> newlyFlashedPoints = new ArrayList<>();
-         for (Point flashedPoint: flashedPoints) {
+         int flashedCell = flashedCells[f];
+         for (int i = neighbors.start(flashedCell); i < neighbors.end(flashedCell); i++) {
 
-            List<Point> neighbors = table.findNeighbors(flashedPoint, true, null);
-            newlyFlashedPoints.addAll(incrementAndFlash(table, neighbors));
+            int neighbor = neighbors.neighborAt(i);
+            if (incrementAndFlash(table, neighbor)) {
+               flashedCells[flashCount++] = neighbor;
+            }
          }
-         allFlashedPoints.addAll(newlyFlashedPoints);
-         flashedPoints = newlyFlashedPoints;
       }
 
-      allFlashedPoints.forEach(p -> table.setValueAt(p, 0));
+      for (int f = 0; f < flashCount; f++) {
+         table.setValue(flashedCells[f], (byte) 0);
+      }
+
+      return flashCount;
+   }
+
+   private boolean incrementAndFlash(ByteTable table, int cell) {
+
+      int value = table.getValue(cell);
+      if (value > 9) {
+         return false;
+      }
+      table.setValue(cell, (byte) (value + 1));
+      return value + 1 > 9;
+   }
+
+   @Test
+   void part1WithOctopusSwarm() throws IOException {
+
+      OctopusSwarm swarm = new OctopusSwarm(load("/day11.txt"));
+
+      int result = 0;
+      for (int i = 0; i < 100; i++) {
+         result += swarm.step();
+      }
+
+      assertThat(result, is(1588));
+   }
+
+   @Test
+   void part2WithOctopusSwarm() throws IOException {
+
+      OctopusSwarm swarm = new OctopusSwarm(load("/day11.txt"));
+
+      int stepCount = 1;
+      while (swarm.step() != swarm.getCellCount()) {
+         stepCount++;
+      }
 
-      return allFlashedPoints.size();
+      assertThat(stepCount, is(517));
    }
 
-   private List<Point> incrementAndFlash(Table<Integer> table, Collection<Point> points) {
+   @Test
+   void octopusSwarmOnWideGrids(@TempDir Path dir) throws IOException {
 
-      List<Point> flashedPoints = new ArrayList<>();
+      for (int width : new int[] { 17, 70, 130 }) {
 
-      for (Point point: points) {
-         int value = table.getValueAt(point);
-         if (value > 9) {
-            continue;
+         Path input = dir.resolve("day11-" + width + ".txt");
+         try (Writer out = Files.newBufferedWriter(input)) {
+            InputGenerators.octopuses((long) width * width, width, out);
          }
-         int newValue = value + 1;
-         if (newValue > 9) {
-            flashedPoints.add(point);
+
+         ByteTable table = DigitGridLoader.load(input);
+         assertThat(table.getColCount(), is(width));
+
+         OctopusSwarm swarm = new OctopusSwarm(table);
+         for (int step = 0; step < 300; step++) {
+            assertThat("Step " + step + " of a grid " + width + " wide", swarm.step(), is(playRound(table)));
          }
-         table.setValueAt(point, newValue);
       }
-      return flashedPoints;
    }
 }
@@ -4,37 +4,149 @@ import advent2021.misc.Utils;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-public class Day12Test {
+public class Day12Test implements Puzzle<Day12Test.Graph> {
 
    static class Graph {
 
       private final Set<Edge> edges = new HashSet<>();
 
+      private volatile IndexedGraph indexedGraph;
+
       public Graph addEdge(Vertex from, Vertex to) {
 
+         checkNotFrozen();
          this.edges.add(new Edge(from, to));
          return this;
       }
 
       public Graph merge(Graph g) {
 
+         checkNotFrozen();
          this.edges.addAll(g.edges);
          return this;
       }
 
+      private void checkNotFrozen() {
+
+         if (indexedGraph != null) {
+            throw new IllegalStateException("Graph is frozen, no edge can be added");
+         }
+      }
+
+      public IndexedGraph freeze() {
+
+         IndexedGraph result = indexedGraph;
+         if (result == null) {
+            result = new IndexedGraph(edges);
+            indexedGraph = result;
+         }
+         return result;
+      }
+
       public Set<Vertex> getReachableVertices(Vertex vertex) {
 
-         return this.edges.stream()
-                 .filter( e -> e.from().equals(vertex) || e.to().equals(vertex))
-                 .map(e -> e.from().equals(vertex) ? e.to() : e.from())
-                 .filter(v -> !v.equals(vertex))
-                 .collect(Collectors.toSet());
+         IndexedGraph frozen = freeze();
+         int index = frozen.indexOf(vertex);
+         return index < 0 ? Collections.emptySet() : frozen.getReachableVertices(index);
+      }
+   }
+
+   static class IndexedGraph {
+
+      private final Vertex[] vertices;
+      private final Map<Vertex, Integer> indices = new HashMap<>();
+      private final int[] offsets;
+      private final int[] adjacency;
+      private final BitSet smallVertices = new BitSet();
+      private final List<Set<Vertex>> reachableVertices = new ArrayList<>();
+
+      IndexedGraph(Collection<Edge> edges) {
+
+         List<Vertex> vertexList = new ArrayList<>();
+         List<Set<Integer>> neighbors = new ArrayList<>();
+
+         for (Edge e : edges) {
+
+            int from = intern(e.from(), vertexList, neighbors);
+            int to = intern(e.to(), vertexList, neighbors);
+
+            if (from != to) {
+               neighbors.get(from).add(to);
+               neighbors.get(to).add(from);
+            }
+         }
+
+         this.vertices = vertexList.toArray(new Vertex[0]);
+         this.offsets = new int[vertices.length + 1];
+         this.adjacency = new int[neighbors.stream().mapToInt(Set::size).sum()];
+
+         for (int i = 0; i < vertices.length; i++) {
+
+            offsets[i + 1] = offsets[i];
+            Set<Vertex> reachable = new LinkedHashSet<>();
+            for (int neighbor : neighbors.get(i)) {
+               adjacency[offsets[i + 1]++] = neighbor;
+               reachable.add(vertices[neighbor]);
+            }
+            reachableVertices.add(Collections.unmodifiableSet(reachable));
+
+            if (vertices[i].small()) {
+               smallVertices.set(i);
+            }
+         }
+      }
+
+      private int intern(Vertex vertex, List<Vertex> vertexList, List<Set<Integer>> neighbors) {
+
+         return indices.computeIfAbsent(vertex, v -> {
+            vertexList.add(v);
+            neighbors.add(new LinkedHashSet<>());
+            return vertexList.size() - 1;
+         });
+      }
+
+      int getVertexCount() {
+         return vertices.length;
+      }
+
+      int indexOf(Vertex vertex) {
+         return indices.getOrDefault(vertex, -1);
+      }
+
+      Vertex getVertex(int index) {
+         return vertices[index];
+      }
+
+      boolean isSmall(int index) {
+         return smallVertices.get(index);
+      }
+
+      int getSmallVertexCount() {
+         return smallVertices.cardinality();
+      }
+
+      int neighborsStart(int index) {
+         return offsets[index];
+      }
+
+      int neighborsEnd(int index) {
+         return offsets[index + 1];
+      }
+
+      int neighborAt(int position) {
+         return adjacency[position];
+      }
+
+      Set<Vertex> getReachableVertices(int index) {
+         return reachableVertices.get(index);
       }
    }
 
@@ -47,41 +159,226 @@ public class Day12Test {
 
    record Edge(Vertex from, Vertex to) {}
 
+   enum VisitPolicy {
+
+      SMALL_CAVES_ONCE(false),
+      ONE_SMALL_CAVE_TWICE(true);
+
+      final boolean singleSmallCaveRevisitAllowed;
+
+      VisitPolicy(boolean singleSmallCaveRevisitAllowed) {
+         this.singleSmallCaveRevisitAllowed = singleSmallCaveRevisitAllowed;
+      }
+
+      VertexVisitController controller() {
+
+         if (!singleSmallCaveRevisitAllowed) {
+            return (g, vertex, visitedVertices) -> !vertex.small() || visitedVertices.getOrDefault(vertex,0) == 0;
+         }
+
+         return (graph, vertex, visitedVertices) -> {
+
+            if (vertex.id().equals("start")) {
+               return false;
+            } else if (vertex.small()) {
+               int count = visitedVertices.getOrDefault(vertex, 0);
+               return hasSmallVertexVisitedTwice(visitedVertices) ? count == 0 : count < 2;
+            } else {
+               return true;
+            }
+         };
+      }
+   }
+
+   static class PathCounter {
+
+      record State(int vertex, long visitedSmallVertices, boolean revisitUsed) {}
+
+      private final IndexedGraph graph;
+      private final long[] smallVertexBits;
+
+      PathCounter(Graph g) {
+
+         this.graph = g.freeze();
+         this.smallVertexBits = new long[graph.getVertexCount()];
+
+         if (graph.getSmallVertexCount() > Long.SIZE) {
+            throw new IllegalArgumentException("Too many small caves, at most " + Long.SIZE + " are supported");
+         }
+
+         int smallVertexCount = 0;
+         for (int i = 0; i < graph.getVertexCount(); i++) {
+            if (graph.isSmall(i)) {
+               smallVertexBits[i] = 1L << smallVertexCount++;
+            }
+         }
+      }
+
+      private int indexOf(Vertex vertex) {
+
+         int index = graph.indexOf(vertex);
+         if (index < 0) {
+            throw new IllegalArgumentException("Cave " + vertex.id() + " is not in the graph");
+         }
+         return index;
+      }
+
+      long countPaths(Vertex from, Vertex to, VisitPolicy policy) {
+
+         int start = indexOf(from);
+         return countPaths(start, start, indexOf(to), policy, new State(start, smallVertexBits[start], false), new HashMap<>());
+      }
+
+      private long countPaths(int start, int vertex, int end, VisitPolicy policy, State state, Map<State, Long> cache) {
+
+         Long cached = cache.get(state);
+         if (cached != null) {
+            return cached;
+         }
+
+         long count = 0;
+         for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+
+            int next = graph.neighborAt(i);
+            State nextState = nextState(start, next, end, policy, state);
+
+            if (next == end) {
+               count = Math.addExact(count, 1);
+            } else if (nextState != null) {
+               count = Math.addExact(count, countPaths(start, next, end, policy, nextState, cache));
+            }
+         }
+
+         cache.put(state, count);
+         return count;
+      }
+
+      BigInteger countPathsExactly(Vertex from, Vertex to, VisitPolicy policy) {
+
+         int start = indexOf(from);
+         return countPathsExactly(start, start, indexOf(to), policy, new State(start, smallVertexBits[start], false), new HashMap<>());
+      }
+
+      private BigInteger countPathsExactly(int start, int vertex, int end, VisitPolicy policy, State state, Map<State, BigInteger> cache) {
+
+         BigInteger cached = cache.get(state);
+         if (cached != null) {
+            return cached;
+         }
+
+         BigInteger count = BigInteger.ZERO;
+         for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+
+            int next = graph.neighborAt(i);
+            State nextState = nextState(start, next, end, policy, state);
+
+            if (next == end) {
+               count = count.add(BigInteger.ONE);
+            } else if (nextState != null) {
+               count = count.add(countPathsExactly(start, next, end, policy, nextState, cache));
+            }
+         }
+
+         cache.put(state, count);
+         return count;
+      }
+
+      private State nextState(int start, int next, int end, VisitPolicy policy, State state) {
+
+         long bit = smallVertexBits[next];
+
+         if (next == start || next == end) {
+            return null;
+         } else if (bit == 0) {
+            return new State(next, state.visitedSmallVertices(), state.revisitUsed());
+         } else if ((state.visitedSmallVertices() & bit) == 0) {
+            return new State(next, state.visitedSmallVertices() | bit, state.revisitUsed());
+         } else if (policy.singleSmallCaveRevisitAllowed && !state.revisitUsed()) {
+            return new State(next, state.visitedSmallVertices(), true);
+         } else {
+            return null;
+         }
+      }
+   }
+
+   @Override
+   public Integer solvePart1(Graph g) {
+
+      SolveEvent event = SolveEvent.begin(12, 1);
+      LongAdder expandedVertices = new LongAdder();
+
+      List<List<Edge>> allPaths = findAllPath(g, new Vertex("start"), new Vertex("end"), VisitPolicy.SMALL_CAVES_ONCE.controller(), expandedVertices);
+
+      if (event.shouldCommit()) {
+         event.iterations(expandedVertices.sum()).commit();
+      }
+      return allPaths.size();
+   }
+
+   @Override
+   public Integer solvePart2(Graph g) {
+
+      SolveEvent event = SolveEvent.begin(12, 2);
+      LongAdder expandedVertices = new LongAdder();
+
+      List<List<Edge>> allPaths = findAllPath(g, new Vertex("start"), new Vertex("end"), VisitPolicy.ONE_SMALL_CAVE_TWICE.controller(), expandedVertices);
+
+      if (event.shouldCommit()) {
+         event.iterations(expandedVertices.sum()).commit();
+      }
+      return allPaths.size();
+   }
+
    @Test
    void part1() throws IOException {
 
-      Graph g = parse("/day12.txt");
-
-      VertexVisitController controller = (gg, vertex, visitedVertices) -> {
-         return !vertex.small() || visitedVertices.getOrDefault(vertex,0) == 0;
-      };
+      Graph g = load("/day12.txt");
 
-      List<List<Edge>> allPaths = findAllPath(g, new Vertex("start"), new Vertex("end"), controller);
-      assertThat(allPaths.size(), is(3292));
+      assertThat(solvePart1(g), is(3292));
    }
 
    @Test
    void part2() throws IOException {
 
-      Graph g = parse("/day12.txt");
+      Graph g = load("/day12.txt");
 
-      VertexVisitController controller = (graph, vertex, visitedVertices) -> {
+      assertThat(solvePart2(g), is(89592));
+   }
 
-         if (vertex.id().equals("start")) {
-            return false;
-         } else if (vertex.small()) {
-            int count = visitedVertices.getOrDefault(vertex, 0);
-            return hasSmallVertexVisitedTwice(visitedVertices) ? count == 0 : count < 2;
-         } else {
-            return true;
-         }
-      };
+   @Test
+   void part1WithPathCounter() throws IOException {
 
-      List<List<Edge>> allPaths = findAllPath(g, new Vertex("start"), new Vertex("end"), controller);
-      assertThat(allPaths.size(), is(89592));
+      PathCounter counter = new PathCounter(load("/day12.txt"));
+
+      assertThat(counter.countPaths(new Vertex("start"), new Vertex("end"), VisitPolicy.SMALL_CAVES_ONCE), is(3292L));
+   }
+
+   @Test
+   void part2WithPathCounter() throws IOException {
+
+      PathCounter counter = new PathCounter(load("/day12.txt"));
+
+      assertThat(counter.countPaths(new Vertex("start"), new Vertex("end"), VisitPolicy.ONE_SMALL_CAVE_TWICE), is(89592L));
+      assertThat(counter.countPathsExactly(new Vertex("start"), new Vertex("end"), VisitPolicy.ONE_SMALL_CAVE_TWICE),
+            is(BigInteger.valueOf(89592L)));
+   }
+
+   @Test
+   void pathCounterRejectsMissingCaves() {
+
+      Graph g = new Graph().addEdge(new Vertex("start"), new Vertex("A")).addEdge(new Vertex("A"), new Vertex("end"));
+      PathCounter counter = new PathCounter(g);
+
+      assertThat(counter.countPaths(new Vertex("start"), new Vertex("end"), VisitPolicy.SMALL_CAVES_ONCE), is(1L));
+
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> counter.countPaths(new Vertex("begin"), new Vertex("end"), VisitPolicy.SMALL_CAVES_ONCE));
+      assertThat(e.getMessage(), is("Cave begin is not in the graph"));
+      assertThrows(IllegalArgumentException.class,
+            () -> counter.countPathsExactly(new Vertex("start"), new Vertex("finish"), VisitPolicy.ONE_SMALL_CAVE_TWICE));
    }
 
-   private boolean hasSmallVertexVisitedTwice(Map<Vertex, Integer> visitedVertices) {
+   private static boolean hasSmallVertexVisitedTwice(Map<Vertex, Integer> visitedVertices) {
       return visitedVertices.entrySet().stream()
               .anyMatch(e -> e.getKey().small() && e.getValue() >= 2);
    }
@@ -90,11 +387,13 @@ public class Day12Test {
       boolean acceptVisit(Graph g, Vertex v, Map<Vertex, Integer> visitedVertices );
    }
 
-   private List<List<Edge>> findAllPath(Graph g, Vertex from, Vertex to, VertexVisitController controller) {
-      return findAllPath(g, from, to, Collections.emptyMap(), controller);
+   private List<List<Edge>> findAllPath(Graph g, Vertex from, Vertex to, VertexVisitController controller, LongAdder expandedVertices) {
+      return findAllPath(g, from, to, Collections.emptyMap(), controller, expandedVertices);
    }
 
-   private List<List<Edge>> findAllPath(Graph g, Vertex from, Vertex to, Map<Vertex,Integer> visitedVertices, VertexVisitController controller) {
+   private List<List<Edge>> findAllPath(Graph g, Vertex from, Vertex to, Map<Vertex,Integer> visitedVertices, VertexVisitController controller, LongAdder expandedVertices) {
+
+      expandedVertices.increment();
 
       Map<Vertex, Integer> newVisitedVertices = Utils.Maps.add(visitedVertices, from, 1, Integer::sum);
 
@@ -112,7 +411,7 @@ public class Day12Test {
                continue;
             }
 
-            for (List<Edge> partialPath : findAllPath(g, vertex, to, newVisitedVertices, controller)) {
+            for (List<Edge> partialPath : findAllPath(g, vertex, to, newVisitedVertices, controller, expandedVertices)) {
 
                List<Edge> completePath = new ArrayList<>();
                completePath.add(edge);
@@ -124,11 +423,25 @@ public class Day12Test {
       return result;
    }
 
-   private Graph parse(String resourceName) throws IOException {
+   @Override
+   public Graph parse(String resourceName) throws IOException {
+
+      ParseEvent event = ParseEvent.begin(12, resourceName);
 
       List<Edge> vertices = Utils.readValuesFromResources(resourceName, Day12Test::parseVertex);
-      return vertices.stream()
+      Graph graph = vertices.stream()
               .reduce(new Graph(), (g,e) -> g.addEdge(e.from(), e.to()), Graph::merge);
+
+      if (event.shouldCommit()) {
+         event.records(vertices.size()).commit();
+      }
+      return graph;
+   }
+
+   @Override
+   public Graph freeze(Graph g) {
+      g.freeze();
+      return g;
    }
 
    private static Edge parseVertex(String s) {
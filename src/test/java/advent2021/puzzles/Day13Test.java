@@ -13,7 +13,7 @@ import java.util.List;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
-public class Day13Test {
+public class Day13Test implements Puzzle<Day13Test.Problem> {
 
    enum Axis {
       X,Y
@@ -60,6 +60,125 @@ public class Day13Test {
       }
    }
 
+   static class BitSheet {
+
+      private final int width;
+      private final int height;
+      private final int wordsPerRow;
+      private final long[] bits;
+
+      BitSheet(int width, int height) {
+         this.width = width;
+         this.height = height;
+         this.wordsPerRow = (width + 63) >>> 6;
+         this.bits = new long[height * wordsPerRow];
+      }
+
+      static BitSheet of(List<Point> points) {
+
+         Size size = points.stream().reduce(new Size(0, 0), (Size::fit), Size::union);
+
+         BitSheet sheet = new BitSheet(size.width(), size.height());
+         for (Point point : points) {
+            sheet.set(point.x(), point.y());
+         }
+         return sheet;
+      }
+
+      void set(int x, int y) {
+         bits[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+      }
+
+      boolean get(int x, int y) {
+         return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+      }
+
+      long count() {
+
+         long count = 0;
+         for (long word : bits) {
+            count += Long.bitCount(word);
+         }
+         return count;
+      }
+
+      BitSheet fold(Folding folding) {
+         return folding.axis() == Axis.X ? foldX(folding.value()) : foldY(folding.value());
+      }
+
+      private BitSheet foldY(int foldPoint) {
+
+         BitSheet result = new BitSheet(width, foldPoint);
+
+         for (int y = 0; y < foldPoint; y++) {
+
+            int mirroredY = 2 * foldPoint - y;
+            for (int w = 0; w < wordsPerRow; w++) {
+               long word = y < height ? bits[y * wordsPerRow + w] : 0;
+               if (mirroredY < height) {
+                  word |= bits[mirroredY * wordsPerRow + w];
+               }
+               result.bits[y * wordsPerRow + w] = word;
+            }
+         }
+         return result;
+      }
+
+      private BitSheet foldX(int foldPoint) {
+
+         BitSheet result = new BitSheet(foldPoint, height);
+
+         int mirrorLength = 2 * foldPoint + 1;
+         long[] mirrored = new long[(mirrorLength + 63) >>> 6];
+
+         for (int y = 0; y < height; y++) {
+
+            reverse(y * wordsPerRow, mirrorLength, mirrored);
+
+            for (int w = 0; w < result.wordsPerRow; w++) {
+               long word = mirrored[w];
+               if (w < wordsPerRow) {
+                  word |= bits[y * wordsPerRow + w];
+               }
+               if (w == result.wordsPerRow - 1 && (foldPoint & 63) != 0) {
+                  word &= -1L >>> (64 - (foldPoint & 63));
+               }
+               result.bits[y * result.wordsPerRow + w] = word;
+            }
+         }
+         return result;
+      }
+
+      private void reverse(int rowOffset, int length, long[] target) {
+
+         int words = target.length;
+         for (int i = 0; i < words; i++) {
+            int source = words - 1 - i;
+            target[i] = source < wordsPerRow ? Long.reverse(bits[rowOffset + source]) : 0;
+         }
+
+         int shift = (words << 6) - length;
+         if (shift != 0) {
+            for (int i = 0; i < words; i++) {
+               target[i] = (target[i] >>> shift) | (i + 1 < words ? target[i + 1] << (64 - shift) : 0);
+            }
+         }
+      }
+
+      String draw() {
+
+         StringBuilder sb = new StringBuilder();
+
+         for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+               sb.append(get(x, y) ? "#" : ".");
+            }
+            sb.append("\n");
+         }
+         return sb.toString();
+      }
+   }
+
    private static Table fold(Table t, Folding folding) {
 
       if (folding.axis == Axis.X) {
@@ -117,31 +236,72 @@ public class Day13Test {
       return sb.toString();
    }
 
-   @Test
-   void part1() throws IOException {
+   @Override
+   public Problem parse(String resourceName) throws IOException {
+      ParseEvent event = ParseEvent.begin(13, resourceName);
+      Problem pb = parseProblem(resourceName);
+      if (event.shouldCommit()) {
+         event.records(pb.points().size() + pb.foldings().size()).commit();
+      }
+      return pb;
+   }
+
+   @Override
+   public Problem freeze(Problem pb) {
+      return new Problem(List.copyOf(pb.points()), List.copyOf(pb.foldings()));
+   }
 
-      Problem pb = parseProblem("/day13.txt");
+   @Override
+   public Long solvePart1(Problem pb) {
+
+      SolveEvent event = SolveEvent.begin(13, 1);
 
       Table table = fillTable(pb.points);
       Folding folding = pb.foldings.get(0);
 
       Table foldResult = fold(table, folding);
-
       long count = foldResult.values.stream().filter(b -> b).count();
-      assertThat(count, is(770L));
+
+      if (event.shouldCommit()) {
+         event.iterations(1).grid(table.getWidth(), table.getHeight()).commit();
+      }
+      return count;
    }
 
-   @Test
-   void part2() throws IOException {
+   @Override
+   public String solvePart2(Problem pb) {
+
+      SolveEvent event = SolveEvent.begin(13, 2);
 
-      Problem pb = parseProblem("/day13.txt");
       Table table = fillTable(pb.points);
+      int width = table.getWidth();
+      int height = table.getHeight();
 
       for (Folding folding: pb.foldings) {
          table = fold(table, folding);
       }
 
-      String drawnTable = drawTable(table);
+      if (event.shouldCommit()) {
+         event.iterations(pb.foldings.size()).grid(width, height).commit();
+      }
+      return drawTable(table);
+   }
+
+   @Test
+   void part1() throws IOException {
+
+      Problem pb = load("/day13.txt");
+
+      long count = solvePart1(pb);
+      assertThat(count, is(770L));
+   }
+
+   @Test
+   void part2() throws IOException {
+
+      Problem pb = load("/day13.txt");
+
+      String drawnTable = solvePart2(pb);
 
       assertThat(drawnTable,
               is(
@@ -155,6 +315,43 @@ public class Day13Test {
                      """));
    }
 
+   @Test
+   void part1WithBitSheet() throws IOException {
+
+      Problem pb = load("/day13.txt");
+
+      BitSheet sheet = BitSheet.of(pb.points).fold(pb.foldings.get(0));
+
+      assertThat(sheet.count(), is(770L));
+   }
+
+   @Test
+   void part2WithBitSheet() throws IOException {
+
+      Problem pb = load("/day13.txt");
+
+      BitSheet sheet = BitSheet.of(pb.points);
+      for (Folding folding: pb.foldings) {
+         sheet = sheet.fold(folding);
+      }
+
+      assertThat(sheet.draw(), is(solvePart2(pb)));
+   }
+
+   @Test
+   void foldBelowTheLastDot() {
+
+      Problem pb = new Problem(List.of(new Point(0, 0), new Point(4, 1), new Point(70, 2)),
+            List.of(new Folding(Axis.Y, 5), new Folding(Axis.X, 40), new Folding(Axis.X, 45)));
+
+      BitSheet sheet = BitSheet.of(pb.points);
+      for (Folding folding: pb.foldings) {
+         sheet = sheet.fold(folding);
+      }
+
+      assertThat(sheet.draw(), is(solvePart2(pb)));
+   }
+
    Problem parseProblem(String resourceName) throws IOException {
 
       List<String> values = Utils.readValuesFromResources(resourceName);
@@ -0,0 +1,436 @@
+package advent2021.puzzles;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class InputGenerators {
+
+   private static final String SEGMENTS = "abcdefg";
+
+   private static final String[] DIGIT_SEGMENTS = {
+         "abcefg", "cf", "acdeg", "acdfg", "bcdf", "abdfg", "abdefg", "acf", "abcdefg", "abcdfg"
+   };
+
+   private static final String OPENING_CHARS = "([{<";
+   private static final String CLOSING_CHARS = ")]}>";
+
+   @FunctionalInterface
+   public interface Generator {
+      void generate(long records, long seed, Writer out) throws IOException;
+   }
+
+   public static void main(String[] args) throws IOException {
+
+      if (args.length < 2) {
+         System.err.println("Usage: InputGenerators <day> <records> [seed] [output file]");
+         System.exit(1);
+      }
+
+      Generator generator = forDay(Integer.parseInt(args[0]));
+      long records = Long.parseLong(args[1]);
+      long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+      Writer out = args.length > 3
+            ? Files.newBufferedWriter(Path.of(args[3]), StandardCharsets.UTF_8)
+            : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+      try (out) {
+         generator.generate(records, seed, out);
+      }
+   }
+
+   public static Generator forDay(int day) {
+
+      return switch (day) {
+         case 1 -> InputGenerators::depths;
+         case 2 -> InputGenerators::commands;
+         case 3 -> (records, seed, out) -> diagnostics(records, 12, seed, out);
+         case 4 -> InputGenerators::bingo;
+         case 5 -> (records, seed, out) -> vents(records, 1000, seed, out);
+         case 6 -> InputGenerators::fishTimers;
+         case 7 -> InputGenerators::crabPositions;
+         case 8 -> InputGenerators::displays;
+         case 9 -> InputGenerators::heightmap;
+         case 10 -> InputGenerators::navigation;
+         case 11 -> InputGenerators::octopuses;
+         case 12 -> InputGenerators::caves;
+         case 13 -> InputGenerators::transparentPaper;
+         default -> throw new IllegalArgumentException("No generator for day " + day);
+      };
+   }
+
+   public static void depths(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      int depth = 100 + random.nextInt(100);
+      for (long i = 0; i < records; i++) {
+         depth = Math.max(1, depth + random.nextInt(-10, 21));
+         writeLine(out, Integer.toString(depth));
+      }
+   }
+
+   public static void commands(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      long aim = 0;
+      for (long i = 0; i < records; i++) {
+
+         int magnitude = 1 + random.nextInt(9);
+         int kind = random.nextInt(3);
+
+         if (kind == 0) {
+            writeLine(out, "forward " + magnitude);
+         } else if (kind == 1 || aim < magnitude) {
+            aim += magnitude;
+            writeLine(out, "down " + magnitude);
+         } else {
+            aim -= magnitude;
+            writeLine(out, "up " + magnitude);
+         }
+      }
+   }
+
+   public static void diagnostics(long records, int width, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      if (width <= 0) {
+         throw new IllegalArgumentException("Width must be positive but got " + width);
+      }
+
+      SplittableRandom random = new SplittableRandom(seed);
+      char[] line = new char[width];
+
+      for (long i = 0; i < records; i++) {
+
+         long bits = 0;
+         for (int j = 0; j < width; j++) {
+            if ((j & 63) == 0) {
+               bits = random.nextLong();
+            }
+            line[j] = (bits & (1L << j)) != 0 ? '1' : '0';
+         }
+         out.write(line);
+         out.write('\n');
+      }
+   }
+
+   public static void bingo(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      int[] numbers = shuffledRange(100, random);
+      for (int i = 0; i < numbers.length; i++) {
+         if (i > 0) {
+            out.write(',');
+         }
+         out.write(Integer.toString(numbers[i]));
+      }
+      out.write('\n');
+
+      for (long board = 0; board < records; board++) {
+
+         out.write('\n');
+         int[] cells = shuffledRange(100, random);
+         for (int row = 0; row < 5; row++) {
+            writeLine(out, String.format("%2d %2d %2d %2d %2d",
+                  cells[row * 5], cells[row * 5 + 1], cells[row * 5 + 2], cells[row * 5 + 3], cells[row * 5 + 4]));
+         }
+      }
+   }
+
+   public static void vents(long records, int size, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      for (long i = 0; i < records; i++) {
+
+         int x1 = random.nextInt(size);
+         int y1 = random.nextInt(size);
+         int length = random.nextInt(size);
+
+         int x2 = x1;
+         int y2 = y1;
+         switch (random.nextInt(3)) {
+            case 0 -> x2 = random.nextInt(size);
+            case 1 -> y2 = random.nextInt(size);
+            default -> {
+               int dx = random.nextBoolean() ? 1 : -1;
+               int dy = random.nextBoolean() ? 1 : -1;
+               length = Math.min(length, Math.min(dx > 0 ? size - 1 - x1 : x1, dy > 0 ? size - 1 - y1 : y1));
+               x2 = x1 + dx * length;
+               y2 = y1 + dy * length;
+            }
+         }
+
+         writeLine(out, x1 + "," + y1 + " -> " + x2 + "," + y2);
+      }
+   }
+
+   public static void fishTimers(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      for (long i = 0; i < records; i++) {
+         if (i > 0) {
+            out.write(',');
+         }
+         out.write('1' + random.nextInt(5));
+      }
+      out.write('\n');
+   }
+
+   public static void crabPositions(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      for (long i = 0; i < records; i++) {
+         if (i > 0) {
+            out.write(',');
+         }
+         out.write(Integer.toString(random.nextInt(2000)));
+      }
+      out.write('\n');
+   }
+
+   public static void displays(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      StringBuilder line = new StringBuilder();
+      for (long i = 0; i < records; i++) {
+
+         char[] wiring = shuffle(SEGMENTS.toCharArray(), random);
+         int[] digits = shuffledRange(10, random);
+
+         line.setLength(0);
+         for (int digit : digits) {
+            appendPattern(line, digit, wiring, random).append(' ');
+         }
+         line.append('|');
+         for (int j = 0; j < 4; j++) {
+            appendPattern(line.append(' '), random.nextInt(10), wiring, random);
+         }
+
+         writeLine(out, line);
+      }
+   }
+
+   public static void heightmap(long records, long seed, Writer out) throws IOException {
+      digitGrid(records, seed, out);
+   }
+
+   public static void navigation(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      StringBuilder line = new StringBuilder();
+      StringBuilder openChunks = new StringBuilder();
+
+      for (long i = 0; i < records; i++) {
+
+         line.setLength(0);
+         openChunks.setLength(0);
+
+         int length = 20 + random.nextInt(90);
+         int corruptedAt = random.nextBoolean() ? random.nextInt(length) : -1;
+
+         for (int j = 0; j < length; j++) {
+
+            int top = openChunks.length() - 1;
+
+            if (j == corruptedAt && top >= 0) {
+               int expected = OPENING_CHARS.indexOf(openChunks.charAt(top));
+               line.append(CLOSING_CHARS.charAt((expected + 1 + random.nextInt(3)) % 4));
+            } else if (top >= 0 && random.nextInt(5) < 2) {
+               line.append(CLOSING_CHARS.charAt(OPENING_CHARS.indexOf(openChunks.charAt(top))));
+               openChunks.setLength(top);
+            } else {
+               char c = OPENING_CHARS.charAt(random.nextInt(4));
+               line.append(c);
+               openChunks.append(c);
+            }
+         }
+
+         if (openChunks.isEmpty()) {
+            line.append(OPENING_CHARS.charAt(random.nextInt(4)));
+         }
+
+         writeLine(out, line);
+      }
+   }
+
+   public static void octopuses(long records, long seed, Writer out) throws IOException {
+      digitGrid(records, seed, out);
+   }
+
+   public static void caves(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      int caveCount = (int) Math.max(2, Math.min(Math.sqrt(records), 1 << 20));
+
+      writeLine(out, "start-" + caveName(0, true));
+      writeLine(out, caveName(0, false) + "-end");
+
+      for (long i = 2; i < records; i++) {
+
+         int from = random.nextInt(caveCount);
+         int to = random.nextInt(caveCount);
+         boolean fromSmall = random.nextBoolean();
+         boolean toSmall = !fromSmall || random.nextBoolean();
+
+         if (from == to && fromSmall == toSmall) {
+            to = (to + 1) % caveCount;
+         }
+
+         if (random.nextInt(16) == 0) {
+            writeLine(out, random.nextBoolean()
+                  ? "start-" + caveName(from, fromSmall)
+                  : caveName(from, fromSmall) + "-end");
+         } else {
+            writeLine(out, caveName(from, fromSmall) + "-" + caveName(to, toSmall));
+         }
+      }
+   }
+
+   public static void transparentPaper(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      int width = 40;
+      int height = 6;
+      int xFolds = 0;
+      int yFolds = 0;
+
+      while ((long) width * height < records && width < (1 << 28) && height < (1 << 28)) {
+         if (xFolds <= yFolds) {
+            width = 2 * width + 1;
+            xFolds++;
+         } else {
+            height = 2 * height + 1;
+            yFolds++;
+         }
+      }
+      if (xFolds == 0) {
+         width = 2 * width + 1;
+         xFolds++;
+      }
+
+      for (long i = 0; i < records; i++) {
+         writeLine(out, random.nextInt(width) + "," + random.nextInt(height));
+      }
+
+      out.write('\n');
+
+      while (xFolds > 0 || yFolds > 0) {
+         if (xFolds >= yFolds) {
+            width /= 2;
+            xFolds--;
+            writeLine(out, "fold along x=" + width);
+         } else {
+            height /= 2;
+            yFolds--;
+            writeLine(out, "fold along y=" + height);
+         }
+      }
+   }
+
+   private static void digitGrid(long records, long seed, Writer out) throws IOException {
+
+      checkRecords(records);
+      SplittableRandom random = new SplittableRandom(seed);
+
+      int width = (int) Math.ceil(Math.sqrt(records));
+      long height = (records + width - 1) / width;
+
+      char[] row = new char[width];
+      for (long y = 0; y < height; y++) {
+         for (int x = 0; x < width; x++) {
+            row[x] = (char) ('0' + random.nextInt(10));
+         }
+         out.write(row);
+         out.write('\n');
+      }
+   }
+
+   private static StringBuilder appendPattern(StringBuilder sb, int digit, char[] wiring, SplittableRandom random) {
+
+      char[] pattern = DIGIT_SEGMENTS[digit].toCharArray();
+      for (int i = 0; i < pattern.length; i++) {
+         pattern[i] = wiring[pattern[i] - 'a'];
+      }
+      return sb.append(shuffle(pattern, random));
+   }
+
+   private static String caveName(int index, boolean small) {
+
+      StringBuilder sb = new StringBuilder();
+      char base = small ? 'a' : 'A';
+      int i = index;
+      do {
+         sb.append((char) (base + i % 26));
+         i /= 26;
+      } while (i > 0);
+      if (sb.length() < 2) {
+         sb.append(base);
+      }
+
+      String name = sb.toString();
+      return name.equals("start") || name.equals("end") ? name + base : name;
+   }
+
+   private static int[] shuffledRange(int n, SplittableRandom random) {
+
+      int[] values = new int[n];
+      for (int i = 0; i < n; i++) {
+         values[i] = i;
+      }
+      for (int i = n - 1; i > 0; i--) {
+         int j = random.nextInt(i + 1);
+         int tmp = values[i];
+         values[i] = values[j];
+         values[j] = tmp;
+      }
+      return values;
+   }
+
+   private static char[] shuffle(char[] values, SplittableRandom random) {
+
+      for (int i = values.length - 1; i > 0; i--) {
+         int j = random.nextInt(i + 1);
+         char tmp = values[i];
+         values[i] = values[j];
+         values[j] = tmp;
+      }
+      return values;
+   }
+
+   private static void writeLine(Writer out, CharSequence line) throws IOException {
+      out.append(line).write('\n');
+   }
+
+   private static void checkRecords(long records) {
+
+      if (records <= 0) {
+         throw new IllegalArgumentException("Record count must be positive but got " + records);
+      }
+   }
+}
@@ -0,0 +1,47 @@
+package advent2021.puzzles;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("advent2021.Parse")
+@Label("Parse")
+@Category({"Advent of Code", "Puzzle"})
+class ParseEvent extends Event {
+
+   @Label("Day")
+   int day;
+
+   @Label("Resource")
+   String resourceName;
+
+   @Label("Record Count")
+   long recordCount;
+
+   @Label("Grid Width")
+   int gridWidth;
+
+   @Label("Grid Height")
+   int gridHeight;
+
+   static ParseEvent begin(int day, String resourceName) {
+
+      ParseEvent event = new ParseEvent();
+      event.day = day;
+      event.resourceName = resourceName;
+      event.begin();
+      return event;
+   }
+
+   ParseEvent records(long recordCount) {
+      this.recordCount = recordCount;
+      return this;
+   }
+
+   ParseEvent grid(int width, int height) {
+      this.gridWidth = width;
+      this.gridHeight = height;
+      return this;
+   }
+}
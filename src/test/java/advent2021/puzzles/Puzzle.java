@@ -0,0 +1,22 @@
+package advent2021.puzzles;
+
+import advent2021.misc.ParsedInputCache;
+
+import java.io.IOException;
+
+public interface Puzzle<T> {
+
+   T parse(String resourceName) throws IOException;
+
+   Object solvePart1(T input);
+
+   Object solvePart2(T input);
+
+   default T freeze(T input) {
+      return input;
+   }
+
+   default T load(String resourceName) throws IOException {
+      return ParsedInputCache.shared().get(resourceName, getClass(), r -> freeze(parse(r)));
+   }
+}
@@ -0,0 +1,58 @@
+package advent2021.puzzles;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+
+   @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13"})
+   int day;
+
+   @Param({"sample", "full"})
+   String input;
+
+   private Puzzle<Object> puzzle;
+   private String resourceName;
+   private Object parsedInput;
+
+   @Setup
+   public void setUp() throws IOException {
+
+      puzzle = Puzzles.forDay(day);
+      resourceName = Puzzles.resourceName(day, input.equals("sample"));
+      parsedInput = puzzle.parse(resourceName);
+   }
+
+   @Benchmark
+   public Object parse() throws IOException {
+      return puzzle.parse(resourceName);
+   }
+
+   @Benchmark
+   public Object solvePart1() {
+      return puzzle.solvePart1(parsedInput);
+   }
+
+   @Benchmark
+   public Object solvePart2() {
+      return puzzle.solvePart2(parsedInput);
+   }
+}
@@ -0,0 +1,165 @@
+package advent2021.puzzles;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PuzzleRunner {
+
+   enum Phase {
+      Parse, Part1, Part2
+   }
+
+   record TaskReport(int day, Phase phase, Object result, Throwable error, long wallNanos, long cpuNanos, long allocatedBytes) {}
+
+   private record Parsed(Object input, TaskReport report) {}
+
+   private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+   private final ExecutorService executor;
+   private final boolean sample;
+
+   PuzzleRunner(ExecutorService executor, boolean sample) {
+      this.executor = executor;
+      this.sample = sample;
+   }
+
+   public static void main(String[] args) throws Exception {
+
+      List<String> options = Arrays.asList(args);
+      boolean sample = options.contains("--sample");
+
+      ExecutorService executor = options.contains("--virtual-threads")
+            ? newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+      try {
+         long start = System.nanoTime();
+         List<TaskReport> reports = new PuzzleRunner(executor, sample).runAll();
+         long wallNanos = System.nanoTime() - start;
+
+         printReport(reports, wallNanos);
+      } finally {
+         executor.shutdown();
+      }
+   }
+
+   List<TaskReport> runAll() {
+
+      List<CompletableFuture<TaskReport>> futures = new ArrayList<>();
+
+      for (int day = Puzzles.FIRST_DAY; day <= Puzzles.LAST_DAY; day++) {
+
+         Puzzle<Object> puzzle = Puzzles.forDay(day);
+         String resourceName = Puzzles.resourceName(day, sample);
+         int d = day;
+
+         CompletableFuture<Parsed> parsed = CompletableFuture.supplyAsync(() -> {
+            TaskReport report = measure(d, Phase.Parse, () -> puzzle.parse(resourceName));
+            return new Parsed(report.result(), report);
+         }, executor);
+
+         futures.add(parsed.thenApply(Parsed::report));
+         futures.add(parsed.thenApplyAsync(p -> solve(d, Phase.Part1, p, () -> puzzle.solvePart1(p.input())), executor));
+         futures.add(parsed.thenApplyAsync(p -> solve(d, Phase.Part2, p, () -> puzzle.solvePart2(p.input())), executor));
+      }
+
+      return futures.stream()
+            .map(CompletableFuture::join)
+            .sorted(Comparator.comparingInt(TaskReport::day).thenComparing(TaskReport::phase))
+            .toList();
+   }
+
+   private static TaskReport solve(int day, Phase phase, Parsed parsed, Callable<Object> solver) {
+
+      if (parsed.report().error() != null) {
+         return new TaskReport(day, phase, null, parsed.report().error(), 0, -1, -1);
+      }
+      return measure(day, phase, solver);
+   }
+
+   static TaskReport measure(int day, Phase phase, Callable<Object> task) {
+
+      long threadId = Thread.currentThread().getId();
+      long cpuBefore = cpuTime();
+      long allocatedBefore = allocatedBytes(threadId);
+      long start = System.nanoTime();
+
+      Object result = null;
+      Throwable error = null;
+      try {
+         result = task.call();
+      } catch (Exception | Error e) {
+         error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      }
+
+      long wallNanos = System.nanoTime() - start;
+      long cpuAfter = cpuTime();
+      long allocatedAfter = allocatedBytes(threadId);
+
+      return new TaskReport(day, phase, result, error, wallNanos,
+            cpuBefore < 0 || cpuAfter < 0 ? -1 : cpuAfter - cpuBefore,
+            allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore);
+   }
+
+   private static long cpuTime() {
+
+      try {
+         return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+      } catch (UnsupportedOperationException e) {
+         return -1;
+      }
+   }
+
+   private static long allocatedBytes(long threadId) {
+
+      if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+         try {
+            return threads.getThreadAllocatedBytes(threadId);
+         } catch (UnsupportedOperationException e) {
+            return -1;
+         }
+      }
+      return -1;
+   }
+
+   private static ExecutorService newVirtualThreadPerTaskExecutor() {
+
+      try {
+         return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+         throw new UnsupportedOperationException("Virtual threads require a JDK 21 or newer", e);
+      }
+   }
+
+   private static void printReport(List<TaskReport> reports, long wallNanos) {
+
+      System.out.printf("%-4s %-6s %12s %12s %14s  %s%n", "Day", "Phase", "Wall (ms)", "CPU (ms)", "Allocated (KB)", "Result");
+
+      long sumOfWallNanos = 0;
+      for (TaskReport report : reports) {
+
+         sumOfWallNanos += report.wallNanos();
+
+         String result = report.error() != null
+               ? "FAILED: " + report.error()
+               : report.phase() == Phase.Parse ? "" : String.valueOf(report.result()).replace("\n", "\\n");
+
+         System.out.printf("%-4d %-6s %12.3f %12s %14s  %s%n",
+               report.day(), report.phase(), report.wallNanos() / 1e6,
+               report.cpuNanos() < 0 ? "n/a" : String.format("%.3f", report.cpuNanos() / 1e6),
+               report.allocatedBytes() < 0 ? "n/a" : String.valueOf(report.allocatedBytes() / 1024),
+               result);
+      }
+
+      System.out.printf("%nTotal wall clock: %.3f ms (sum of tasks: %.3f ms)%n", wallNanos / 1e6, sumOfWallNanos / 1e6);
+   }
+}
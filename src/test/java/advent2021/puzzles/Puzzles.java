@@ -0,0 +1,35 @@
+package advent2021.puzzles;
+
+import java.lang.reflect.InvocationTargetException;
+
+public class Puzzles {
+
+   public static final int FIRST_DAY = 1;
+   public static final int LAST_DAY = 13;
+
+   @SuppressWarnings("unchecked")
+   public static Puzzle<Object> forDay(int day) {
+
+      String className = String.format("%s.Day%02dTest", Puzzles.class.getPackageName(), day);
+
+      try {
+         return (Puzzle<Object>) Class.forName(className).getDeclaredConstructor().newInstance();
+      } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
+               | InvocationTargetException e) {
+         throw new IllegalArgumentException("No puzzle found for day " + day, e);
+      }
+   }
+
+   public static String resourceName(int day, boolean sample) {
+
+      String baseName = String.format("/day%02d", day);
+
+      if (!sample) {
+         return baseName + ".txt";
+      } else if (Puzzles.class.getResource(baseName + "-sample.txt") != null) {
+         return baseName + "-sample.txt";
+      } else {
+         return baseName + "-sample-1.txt";
+      }
+   }
+}
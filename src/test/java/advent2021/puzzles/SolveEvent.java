@@ -0,0 +1,47 @@
+package advent2021.puzzles;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("advent2021.Solve")
+@Label("Solve")
+@Category({"Advent of Code", "Puzzle"})
+class SolveEvent extends Event {
+
+   @Label("Day")
+   int day;
+
+   @Label("Part")
+   int part;
+
+   @Label("Iteration Count")
+   long iterationCount;
+
+   @Label("Grid Width")
+   int gridWidth;
+
+   @Label("Grid Height")
+   int gridHeight;
+
+   static SolveEvent begin(int day, int part) {
+
+      SolveEvent event = new SolveEvent();
+      event.day = day;
+      event.part = part;
+      event.begin();
+      return event;
+   }
+
+   SolveEvent iterations(long iterationCount) {
+      this.iterationCount = iterationCount;
+      return this;
+   }
+
+   SolveEvent grid(int width, int height) {
+      this.gridWidth = width;
+      this.gridHeight = height;
+      return this;
+   }
+}